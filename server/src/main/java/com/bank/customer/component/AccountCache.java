@@ -0,0 +1,292 @@
+package com.bank.customer.component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.bank.customer.entity.Account;
+import com.bank.customer.entity.AccountStatus;
+import com.bank.customer.entity.Transaction;
+import com.bank.customer.event.LedgerEvent;
+import com.bank.customer.event.LocalLedgerEventSink;
+import com.bank.customer.repository.AccountRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 账户只读缓存（AccountRepository 之前的一层）
+ * 分别缓存账户基本信息与总余额（含分槽），按条数上限淘汰最久未访问的条目，并按 TTL 过期。
+ * 账户状态变更由 AccountService 在提交后失效；余额变更由 TransactionService 在提交后失效，
+ * 记账引擎、合并提交、批量转账、计息等异步或批量写入及其他实例的记账通过发件箱本地扇出的记账事件失效；
+ * 其他实例上的状态变更不经发件箱，依赖 TTL 过期。
+ * 失效与回填按账户分段计代：加载期间发生失效的结果不回填，避免旧值覆盖新值。
+ * 仅供只读判断使用；需要修改账户的路径仍直接读库。
+ * 命中 / 未命中 / 淘汰次数通过 actuator 的 bank.account.cache.* 指标暴露。
+ */
+@Component
+public class AccountCache implements LocalLedgerEventSink {
+    private static final int GENERATION_STRIPES = 1024;
+    private static final int SEGMENTS = 16;
+
+    private final AccountRepository accountRepository;
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final Region<CachedAccount> accounts;
+    private final Region<BigDecimal> balances;
+    // 按账户哈希分段的失效代数
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public AccountCache(
+            AccountRepository accountRepository,
+            MeterRegistry meterRegistry,
+            @Value("${bank.account-cache.max-entries:100000}") int maxEntries,
+            @Value("${bank.account-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.accountRepository = accountRepository;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.accounts = new Region<>("account", meterRegistry);
+        this.balances = new Region<>("balance", meterRegistry);
+    }
+
+    // ==== 查询 ====
+    public Optional<CachedAccount> findById(String accountId) {
+        return Optional.ofNullable(accounts.get(accountId,
+                id -> accountRepository.findById(id).map(CachedAccount::of).orElse(null)));
+    }
+
+    // 总余额（主行 + 各槽），账户不存在时为 null
+    public BigDecimal getBalance(String accountId) {
+        return balances.get(accountId, accountRepository::getBalance);
+    }
+
+    // ==== 失效 ====
+    public void invalidate(String accountId) {
+        bump(accountId);
+        accounts.remove(accountId);
+        balances.remove(accountId);
+    }
+
+    public void invalidateBalance(String accountId) {
+        bump(accountId);
+        balances.remove(accountId);
+    }
+
+    /**
+     * 账户状态、分槽变更后调用；在事务中调用时等提交后再失效
+     */
+    public void invalidateAfterCommit(String accountId) {
+        afterCommit(() -> invalidate(accountId));
+    }
+
+    // 余额变更后调用；在事务中调用时等提交后再失效
+    public void invalidateBalanceAfterCommit(String... accountIds) {
+        afterCommit(() -> {
+            for (String accountId : accountIds) {
+                invalidateBalance(accountId);
+            }
+        });
+    }
+
+    // ==== 记账事件：失效受影响账户的余额 ====
+    @Override
+    public void publish(List<LedgerEvent> events) {
+        for (LedgerEvent event : events) {
+            Transaction t = event.transaction();
+            if (t.getFromAccountId() != null) {
+                invalidateBalance(t.getFromAccountId());
+            }
+            if (t.getToAccountId() != null) {
+                invalidateBalance(t.getToAccountId());
+            }
+        }
+    }
+
+    // ==== 定时清理过期条目 ====
+    @Scheduled(fixedDelayString = "${bank.account-cache.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        accounts.purgeExpired();
+        balances.purgeExpired();
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private int stripe(String accountId) {
+        return (accountId.hashCode() & 0x7fffffff) % GENERATION_STRIPES;
+    }
+
+    private long generation(String accountId) {
+        return generations.get(stripe(accountId));
+    }
+
+    private void bump(String accountId) {
+        generations.incrementAndGet(stripe(accountId));
+    }
+
+    // 缓存中的账户基本信息（不可变，不含余额）
+    public record CachedAccount(
+            String accountId,
+            Integer userId,
+            String accountType,
+            AccountStatus status,
+            LocalDateTime createdAt) {
+        static CachedAccount of(Account account) {
+            return new CachedAccount(
+                    account.getAccountId(),
+                    account.getUser().getUserId(),
+                    account.getAccountType(),
+                    account.getStatus(),
+                    account.getCreatedAt());
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    // 一类缓存条目：有界、按 TTL 过期，附带命中与淘汰计数
+    // 按账户哈希分段，每段是加锁的访问顺序 LinkedHashMap，超出段容量时淘汰最久未访问的条目
+    private final class Region<V> {
+        private final List<Segment> segments = new ArrayList<>(SEGMENTS);
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter sizeEvictions;
+        private final Counter expirations;
+
+        Region(String name, MeterRegistry registry) {
+            int capacity = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments.add(new Segment(capacity));
+            }
+            this.hits = Counter.builder("bank.account.cache.requests")
+                    .tag("cache", name).tag("result", "hit").register(registry);
+            this.misses = Counter.builder("bank.account.cache.requests")
+                    .tag("cache", name).tag("result", "miss").register(registry);
+            this.sizeEvictions = Counter.builder("bank.account.cache.evictions")
+                    .tag("cache", name).tag("cause", "size").register(registry);
+            this.expirations = Counter.builder("bank.account.cache.evictions")
+                    .tag("cache", name).tag("cause", "expired").register(registry);
+            Gauge.builder("bank.account.cache.size", this, Region::size)
+                    .tag("cache", name).register(registry);
+        }
+
+        V get(String accountId, Function<String, V> loader) {
+            Segment segment = segment(accountId);
+            Entry<V> cached = segment.get(accountId);
+            if (cached != null && !cached.isExpired()) {
+                hits.increment();
+                return cached.value();
+            }
+            if (cached != null && segment.remove(accountId, cached)) {
+                expirations.increment();
+            }
+            misses.increment();
+            long generation = generation(accountId);
+            V value = loader.apply(accountId);
+            if (value != null && generation(accountId) == generation) {
+                Entry<V> entry = new Entry<>(value, System.currentTimeMillis() + ttlMillis);
+                segment.put(accountId, entry);
+                // 写入与失效并发时以失效为准
+                if (generation(accountId) != generation) {
+                    segment.remove(accountId, entry);
+                }
+            }
+            return value;
+        }
+
+        void remove(String accountId) {
+            segment(accountId).remove(accountId, null);
+        }
+
+        void purgeExpired() {
+            segments.forEach(Segment::purgeExpired);
+        }
+
+        private int size() {
+            int size = 0;
+            for (Segment segment : segments) {
+                size += segment.size();
+            }
+            return size;
+        }
+
+        private Segment segment(String accountId) {
+            return segments.get((accountId.hashCode() & 0x7fffffff) % SEGMENTS);
+        }
+
+        private final class Segment {
+            // accessOrder = true：get 与 put 都把条目移到末尾，迭代顺序即最久未访问在前
+            private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+            private final int capacity;
+
+            Segment(int capacity) {
+                this.capacity = capacity;
+            }
+
+            synchronized Entry<V> get(String accountId) {
+                return entries.get(accountId);
+            }
+
+            synchronized void put(String accountId, Entry<V> entry) {
+                entries.put(accountId, entry);
+                if (entries.size() > capacity) {
+                    Iterator<String> eldest = entries.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                    sizeEvictions.increment();
+                }
+            }
+
+            // expected 为 null 时无条件移除
+            synchronized boolean remove(String accountId, Entry<V> expected) {
+                Entry<V> current = entries.get(accountId);
+                if (current == null || (expected != null && current != expected)) {
+                    return false;
+                }
+                entries.remove(accountId);
+                return true;
+            }
+
+            synchronized void purgeExpired() {
+                entries.values().removeIf(entry -> {
+                    if (entry.isExpired()) {
+                        expirations.increment();
+                        return true;
+                    }
+                    return false;
+                });
+            }
+
+            synchronized int size() {
+                return entries.size();
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.bank.customer.component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 账号分配器
+ * 从 account_number_allocator 高水位按块预留序号（独立事务，立即提交），块内用原子计数无锁发号；
+ * 块用完时只有一个线程去预留下一块。账号 = 622588 + 9 位序号 + 1 位 Luhn 校验位。
+ * 进程重启或调用方事务回滚时未用完的序号作废，账号不连续但不会重复。
+ */
+@Component
+public class AccountIdAllocator {
+    private static final String PREFIX = "622588";
+    private static final long MAX_SEQUENCE = 999_999_999L;
+    // 预留一块：原子地推进高水位并返回块起点
+    private static final String RESERVE_SQL =
+            "UPDATE account_number_allocator SET next_value = next_value + ? "
+                    + "OUTPUT deleted.next_value WHERE id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+    private final int blockSize;
+
+    private final AtomicReference<Block> current = new AtomicReference<>(Block.EMPTY);
+    private final Object refillLock = new Object();
+
+    public AccountIdAllocator(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${bank.account-id.block-size:100}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    // ==== 分配一个账号 ====
+    public String next() {
+        while (true) {
+            Block block = current.get();
+            long value = block.next.getAndIncrement();
+            if (value < block.end) {
+                return format(value);
+            }
+            synchronized (refillLock) {
+                // 其他线程可能已换上新块
+                if (current.get() == block) {
+                    current.set(reserve(blockSize));
+                }
+            }
+        }
+    }
+
+    // ==== 批量分配：单独预留一块，一次往返 ====
+    public List<String> next(int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+        Block block = reserve(count);
+        List<String> ids = new ArrayList<>(count);
+        for (long value = block.next.get(); value < block.end; value++) {
+            ids.add(format(value));
+        }
+        return ids;
+    }
+
+    // 在独立事务中预留 size 个序号，不持有调用方事务的行锁
+    private Block reserve(long size) {
+        Long start = requiresNew.execute(
+                status -> jdbcTemplate.queryForObject(RESERVE_SQL, Long.class, size));
+        if (start == null || start + size - 1 > MAX_SEQUENCE) {
+            throw new IllegalStateException("账号序号已用尽");
+        }
+        return new Block(start, start + size);
+    }
+
+    static String format(long sequence) {
+        String body = PREFIX + String.format("%09d", sequence);
+        return body + luhnCheckDigit(body);
+    }
+
+    // Luhn 校验位：从右往左，校验位左侧第一位起隔位乘 2
+    static int luhnCheckDigit(String body) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = body.length() - 1; i >= 0; i--) {
+            int d = body.charAt(i) - '0';
+            if (doubled) {
+                d *= 2;
+                if (d > 9) {
+                    d -= 9;
+                }
+            }
+            sum += d;
+            doubled = !doubled;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    // 已预留的序号区间 [next, end)
+    private static final class Block {
+        static final Block EMPTY = new Block(0, 0);
+
+        final AtomicLong next;
+        final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.bank.customer.component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.bank.customer.dto.AccountSummaryDTO;
+import com.bank.customer.entity.AccountStatus;
+import com.bank.customer.entity.Transaction;
+import com.bank.customer.event.LedgerEvent;
+import com.bank.customer.event.LocalLedgerEventSink;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 用户账户概览读模型
+ * 每个用户的账户概览以不可变列表常驻内存，读取无锁；启动时从 v_user_account_summary 全量构建。
+ * 余额变化通过 {@link com.bank.customer.event.LocalEventFanout} 感知（每个实例都收到全部记账事件），
+ * 本实例上的开户与状态变化由 AccountService 在提交后通知；两者都按账户回查数据库当前值整体替换，
+ * 重复或乱序的通知不会造成累计误差。其他实例上的开户与状态变化不经发件箱，靠定时全量重建收敛。
+ * 已注销（CLOSED）账户不在概览中。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AccountSummaryProjection implements LocalLedgerEventSink {
+    private static final String SUMMARY_SQL =
+            "SELECT v.user_id, v.full_name, v.account_id, v.account_type, " +
+            "v.balance + COALESCE(s.balance, 0) AS balance, v.status " +
+            "FROM v_user_account_summary v " +
+            "OUTER APPLY (SELECT SUM(balance) AS balance FROM account_balance_slot " +
+            "WHERE account_id = v.account_id) s";
+    private static final String BY_ACCOUNTS_SQL = SUMMARY_SQL + " WHERE v.account_id IN (:ids)";
+    private static final String BY_USER_SQL = SUMMARY_SQL + " WHERE v.user_id = :userId";
+    // SQL Server 单条语句参数上限为 2100
+    private static final int IN_CLAUSE_LIMIT = 2000;
+
+    private static final RowMapper<AccountSummaryDTO> ROW_MAPPER = (rs, rowNum) -> new AccountSummaryDTO(
+            rs.getInt("user_id"),
+            rs.getString("full_name"),
+            rs.getString("account_id"),
+            rs.getString("account_type"),
+            rs.getBigDecimal("balance"),
+            rs.getString("status"));
+
+    private static final Comparator<AccountSummaryDTO> BY_ACCOUNT_ID =
+            Comparator.comparing(AccountSummaryDTO::accountId);
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    // 用户 → 按 accountId 排序的不可变账户列表
+    private final Map<Integer, List<AccountSummaryDTO>> byUser = new ConcurrentHashMap<>();
+
+    // ==== 查询（无锁，返回不可变快照） ====
+    public List<AccountSummaryDTO> getUserAccounts(Integer userId) {
+        return byUser.getOrDefault(userId, List.of());
+    }
+
+    // ==== 启动时及定时全量构建 ====
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${bank.account-summary.resync-interval-ms:300000}",
+            fixedDelayString = "${bank.account-summary.resync-interval-ms:300000}")
+    public void rebuild() {
+        Map<Integer, List<AccountSummaryDTO>> loaded = new HashMap<>();
+        namedJdbcTemplate.query(SUMMARY_SQL, Map.of(), rs -> {
+            AccountSummaryDTO summary = ROW_MAPPER.mapRow(rs, 0);
+            if (!AccountStatus.CLOSED.name().equals(summary.status())) {
+                loaded.computeIfAbsent(summary.userId(), k -> new ArrayList<>()).add(summary);
+            }
+        });
+        loaded.forEach((userId, accounts) -> {
+            accounts.sort(BY_ACCOUNT_ID);
+            byUser.put(userId, List.copyOf(accounts));
+        });
+        byUser.keySet().retainAll(loaded.keySet());
+        log.info("账户概览读模型构建完成，用户 {} 个", loaded.size());
+    }
+
+    // ==== 记账事件：回查受影响账户的余额 ====
+    @Override
+    public void publish(List<LedgerEvent> events) {
+        Set<String> accountIds = new HashSet<>();
+        for (LedgerEvent event : events) {
+            Transaction t = event.transaction();
+            if (t.getFromAccountId() != null) {
+                accountIds.add(t.getFromAccountId());
+            }
+            if (t.getToAccountId() != null) {
+                accountIds.add(t.getToAccountId());
+            }
+        }
+        refresh(accountIds);
+    }
+
+    /**
+     * 账户开户、状态或分槽变更后调用；在事务中调用时等提交后再回查
+     */
+    public void refreshAfterCommit(String accountId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh(Set.of(accountId));
+                }
+            });
+        } else {
+            refresh(Set.of(accountId));
+        }
+    }
+
+    // 批量开户后调用；在事务中调用时等提交后再回查
+    public void refreshAfterCommit(Collection<String> accountIds) {
+        Set<String> ids = new HashSet<>(accountIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh(ids);
+                }
+            });
+        } else {
+            refresh(ids);
+        }
+    }
+
+    // 用户资料（姓名）变更后整体替换该用户的概览
+    public void refreshUser(Integer userId) {
+        List<AccountSummaryDTO> accounts = namedJdbcTemplate.query(BY_USER_SQL, Map.of("userId", userId), ROW_MAPPER);
+        accounts.forEach(this::apply);
+    }
+
+    private void refresh(Set<String> accountIds) {
+        List<String> ids = new ArrayList<>(accountIds);
+        for (int start = 0; start < ids.size(); start += IN_CLAUSE_LIMIT) {
+            List<String> slice = ids.subList(start, Math.min(start + IN_CLAUSE_LIMIT, ids.size()));
+            namedJdbcTemplate.query(BY_ACCOUNTS_SQL, Map.of("ids", slice), ROW_MAPPER).forEach(this::apply);
+        }
+    }
+
+    // 写时复制：替换该用户列表中的对应账户，读方始终看到完整的旧列表或新列表
+    private void apply(AccountSummaryDTO summary) {
+        boolean visible = !AccountStatus.CLOSED.name().equals(summary.status());
+        byUser.compute(summary.userId(), (userId, current) -> {
+            List<AccountSummaryDTO> next = new ArrayList<>(current == null ? List.of() : current);
+            next.removeIf(a -> a.accountId().equals(summary.accountId()));
+            if (visible) {
+                next.add(summary);
+                next.sort(BY_ACCOUNT_ID);
+            }
+            return next.isEmpty() ? null : List.copyOf(next);
+        });
+    }
+}
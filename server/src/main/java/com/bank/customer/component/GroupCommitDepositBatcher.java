@@ -0,0 +1,172 @@
+package com.bank.customer.component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bank.customer.entity.Account;
+import com.bank.customer.entity.AccountStatus;
+import com.bank.customer.entity.Transaction;
+import com.bank.customer.event.LedgerOutbox;
+import com.bank.customer.exception.AccountNotFoundException;
+import com.bank.customer.exception.AccountStatusException;
+import com.bank.customer.repository.AccountRepository;
+
+/**
+ * 热点账户存款合并提交（bank.deposit.group-commit.enabled=true 时启用）
+ * 同一账户并发到达的存款归为一组：首个到达者作为组长，在短窗口内（或凑满 N 笔）收集同组存款，
+ * 在只包含本组写库的独立事务中执行一次合并余额更新 + 批量插入流水；事务提交后再唤醒组内其他调用方。
+ * 须在事务之外调用：组员等待期间不持有事务，因此不占用连接池连接，也不会与组长争抢账户行锁；
+ * 同时等待的组员数只受 Web 线程数限制，与连接池大小无关。
+ */
+@Component
+@ConditionalOnProperty(name = "bank.deposit.group-commit.enabled", havingValue = "true")
+public class GroupCommitDepositBatcher {
+    private final AccountRepository accountRepository;
+    private final TransactionBatchWriter transactionWriter;
+    private final LedgerOutbox ledgerOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final long windowMillis;
+    private final int maxBatch;
+
+    // 各账户当前正在收集的组
+    private final Map<String, Group> groups = new ConcurrentHashMap<>();
+
+    public GroupCommitDepositBatcher(
+            AccountRepository accountRepository,
+            TransactionBatchWriter transactionWriter,
+            LedgerOutbox ledgerOutbox,
+            PlatformTransactionManager transactionManager,
+            @Value("${bank.deposit.group-commit.window-ms:5}") long windowMillis,
+            @Value("${bank.deposit.group-commit.max-batch:200}") int maxBatch) {
+        this.accountRepository = accountRepository;
+        this.transactionWriter = transactionWriter;
+        this.ledgerOutbox = ledgerOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.windowMillis = windowMillis;
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * 合并存款，须在事务之外调用（组长自行开启事务，提交后本组存款才返回）
+     * 写库失败时整组一起失败，不会部分入账
+     */
+    public Transaction deposit(String accountId, BigDecimal amount) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("合并存款不能在调用方事务中执行");
+        }
+        Member member = new Member(new Transaction(
+                null, null, accountId, amount, "deposit", LocalDateTime.now(), null));
+        boolean[] leader = { false };
+        Group group = groups.compute(accountId, (id, current) -> {
+            Group g = current;
+            if (g == null || !g.add(member)) {
+                g = new Group();
+                g.add(member);
+                leader[0] = true;
+            }
+            return g;
+        });
+        if (leader[0]) {
+            return lead(accountId, group, member);
+        }
+        await(member);
+        return member.transaction();
+    }
+
+    // ==== 组长：收集 → 合并写库 → 提交后通知组员 ====
+    private Transaction lead(String accountId, Group group, Member self) {
+        group.awaitFull(windowMillis);
+        groups.remove(accountId, group);
+        List<Member> members = group.close();
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(accountId, members));
+        } catch (RuntimeException e) {
+            // 账户不存在、状态异常或写库失败对整组都成立，组员直接失败
+            members.forEach(m -> m.result().completeExceptionally(e));
+            throw e;
+        }
+        members.forEach(m -> m.result().complete(null));
+        return self.transaction();
+    }
+
+    private void write(String accountId, List<Member> members) {
+        BigDecimal total = BigDecimal.ZERO;
+        List<Transaction> transactions = new ArrayList<>(members.size());
+        for (Member m : members) {
+            Transaction t = m.transaction();
+            total = total.add(t.getAmount());
+            transactions.add(t);
+        }
+        if (accountRepository.creditIfActive(accountId, total) != 1) {
+            Account account = accountRepository.findById(accountId)
+                    .orElseThrow(AccountNotFoundException::new);
+            throw new AccountStatusException("账户状态异常: " + account.getStatus());
+        }
+        transactionWriter.insertAll(transactions);
+        ledgerOutbox.recordAll(transactions);
+    }
+
+    // 组员等待组长事务提交
+    private void await(Member member) {
+        try {
+            member.result().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
+
+    private record Member(Transaction transaction, CompletableFuture<Void> result) {
+        Member(Transaction transaction) {
+            this(transaction, new CompletableFuture<>());
+        }
+    }
+
+    // 一组待合并的存款；关闭后不再接收新成员
+    private final class Group {
+        private final List<Member> members = new ArrayList<>();
+        private boolean closed;
+
+        synchronized boolean add(Member member) {
+            if (closed || members.size() >= maxBatch) {
+                return false;
+            }
+            members.add(member);
+            if (members.size() >= maxBatch) {
+                notifyAll();
+            }
+            return true;
+        }
+
+        synchronized void awaitFull(long millis) {
+            long deadline = System.currentTimeMillis() + millis;
+            long remaining = millis;
+            while (members.size() < maxBatch && remaining > 0) {
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                remaining = deadline - System.currentTimeMillis();
+            }
+        }
+
+        synchronized List<Member> close() {
+            closed = true;
+            return List.copyOf(members);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.bank.customer.component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.bank.customer.entity.AccountStatus;
+import com.bank.customer.exception.AccountNotFoundException;
+import com.bank.customer.exception.AccountStatusException;
+import com.bank.customer.exception.InsufficientBalanceException;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 热点账户分槽记账
+ * 分槽账户的余额分散在 account_balance_slot 的 N 行中（总余额 = account.balance + 各槽之和，各行均不为负）：
+ * 入账随机选一个槽，扣款从随机槽开始逐个尝试；没有单槽够扣时锁定全部槽合并扣减。
+ * 行锁竞争随槽数 N 分摊，不再集中在 account 一行上。所有方法须在调用方事务中执行。
+ * 内存中的分槽账户表只用于选路，可能落后于其他实例的开关：主行扣款失败时经 {@link #debitIfHot}
+ * 在行锁下复核 hot_slots，每次锁定主行时也按读到的 hot_slots 更新路由。
+ */
+@Component
+@RequiredArgsConstructor
+public class HotAccountLedger {
+    private static final String LOAD_HOT_SQL =
+            "SELECT account_id, hot_slots FROM account WHERE hot_slots > 0";
+    private static final String CREDIT_SLOT_SQL =
+            "UPDATE account_balance_slot SET balance = balance + ? WHERE account_id = ? AND slot_no = ? "
+                    + "AND EXISTS (SELECT 1 FROM account a WHERE a.account_id = account_balance_slot.account_id "
+                    + "AND a.status = 'ACTIVE')";
+    private static final String DEBIT_SLOT_SQL =
+            "UPDATE account_balance_slot SET balance = balance - ? WHERE account_id = ? AND slot_no = ? "
+                    + "AND balance >= ? "
+                    + "AND EXISTS (SELECT 1 FROM account a WHERE a.account_id = account_balance_slot.account_id "
+                    + "AND a.status = 'ACTIVE')";
+    private static final String LOCK_ACCOUNT_SQL =
+            "SELECT balance, status, hot_slots FROM account WITH (UPDLOCK, ROWLOCK) WHERE account_id = ?";
+    private static final String LOCK_SLOTS_SQL =
+            "SELECT slot_no, balance FROM account_balance_slot WITH (UPDLOCK, ROWLOCK) "
+                    + "WHERE account_id = ? ORDER BY slot_no";
+    private static final String SUBTRACT_SLOT_SQL =
+            "UPDATE account_balance_slot SET balance = balance - ? WHERE account_id = ? AND slot_no = ?";
+    private static final String INSERT_SLOT_SQL =
+            "INSERT INTO account_balance_slot (account_id, slot_no, balance) VALUES (?, ?, ?)";
+    private static final String DELETE_SLOTS_SQL =
+            "DELETE FROM account_balance_slot WHERE account_id = ?";
+    private static final String ADD_ACCOUNT_SQL =
+            "UPDATE account SET balance = balance + ? WHERE account_id = ?";
+    private static final String SET_ACCOUNT_SQL =
+            "UPDATE account SET balance = ?, hot_slots = ? WHERE account_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // 分槽账户 → 槽数；仅用于选路，锁定主行时按库中 hot_slots 更正
+    private final Map<String, Integer> hotSlots = new ConcurrentHashMap<>();
+
+    // ==== 启动及定时同步分槽账户列表（其他实例的开关也能被感知） ====
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${bank.hot-account.refresh-interval-ms:60000}")
+    public void refresh() {
+        Map<String, Integer> loaded = new ConcurrentHashMap<>();
+        jdbcTemplate.query(LOAD_HOT_SQL, rs -> {
+            loaded.put(rs.getString("account_id"), rs.getInt("hot_slots"));
+        });
+        hotSlots.keySet().retainAll(loaded.keySet());
+        hotSlots.putAll(loaded);
+    }
+
+    public boolean isHot(String accountId) {
+        return hotSlots.containsKey(accountId);
+    }
+
+    // 从库中读到账户已分槽（如记账引擎加载账户时）后更新路由
+    public void markHot(String accountId, int slots) {
+        route(accountId, slots);
+    }
+
+    /**
+     * 主行扣款失败后调用：锁定主行复核 hot_slots，账户已分槽（路由表尚未同步）时改走分槽扣款
+     * @return false 表示账户不存在或未分槽，由调用方按主行处理
+     */
+    public boolean debitIfHot(String accountId, BigDecimal amount) {
+        AccountRow row = findLockedAccount(accountId).orElse(null);
+        if (row == null || row.hotSlots() == 0) {
+            return false;
+        }
+        debit(accountId, amount);
+        return true;
+    }
+
+    // ==== 入账：随机选一个槽 ====
+    public void credit(String accountId, BigDecimal amount) {
+        int slots = hotSlots.getOrDefault(accountId, 0);
+        if (slots > 0 && jdbcTemplate.update(CREDIT_SLOT_SQL,
+                amount, accountId, ThreadLocalRandom.current().nextInt(slots)) == 1) {
+            return;
+        }
+        // 账户状态异常，或槽位已变更（分槽关闭 / 槽数调整）：校验后入主行，总余额不变
+        lockActiveAccount(accountId);
+        jdbcTemplate.update(ADD_ACCOUNT_SQL, amount, accountId);
+    }
+
+    // ==== 扣款：先逐槽尝试，不够再合并扣减 ====
+    public void debit(String accountId, BigDecimal amount) {
+        int slots = hotSlots.getOrDefault(accountId, 0);
+        int start = slots > 0 ? ThreadLocalRandom.current().nextInt(slots) : 0;
+        for (int i = 0; i < slots; i++) {
+            if (jdbcTemplate.update(DEBIT_SLOT_SQL, amount, accountId, (start + i) % slots, amount) == 1) {
+                return;
+            }
+        }
+        gatherDebit(accountId, amount);
+    }
+
+    // 锁定主行与全部槽，按槽号顺序扣完再扣主行
+    private void gatherDebit(String accountId, BigDecimal amount) {
+        BigDecimal base = lockActiveAccount(accountId);
+        List<Slot> slots = lockSlots(accountId);
+        BigDecimal total = slots.stream().map(Slot::balance).reduce(base, BigDecimal::add);
+        if (total.compareTo(amount) < 0) {
+            throw new InsufficientBalanceException();
+        }
+        BigDecimal remaining = amount;
+        List<Object[]> args = new ArrayList<>();
+        for (Slot slot : slots) {
+            if (remaining.signum() == 0) {
+                break;
+            }
+            BigDecimal take = slot.balance().min(remaining);
+            if (take.signum() > 0) {
+                args.add(new Object[] { take, accountId, slot.slotNo() });
+                remaining = remaining.subtract(take);
+            }
+        }
+        jdbcTemplate.batchUpdate(SUBTRACT_SLOT_SQL, args);
+        if (remaining.signum() > 0) {
+            jdbcTemplate.update(ADD_ACCOUNT_SQL, remaining.negate(), accountId);
+        }
+    }
+
+    /**
+     * 开启分槽（或调整槽数）：主行与原有槽的余额合并后平均分到新槽，主行清零
+     * @return 分槽后的总余额
+     */
+    public BigDecimal enable(String accountId, int slotCount) {
+        lockActiveAccount(accountId);
+        BigDecimal total = fold(accountId);
+        BigDecimal share = total.divide(BigDecimal.valueOf(slotCount), 2, RoundingMode.DOWN);
+        // 除不尽的零头放进 0 号槽
+        BigDecimal first = total.subtract(share.multiply(BigDecimal.valueOf(slotCount - 1)));
+        List<Object[]> args = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            args.add(new Object[] { accountId, i, i == 0 ? first : share });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SLOT_SQL, args);
+        jdbcTemplate.update(SET_ACCOUNT_SQL, BigDecimal.ZERO, slotCount, accountId);
+        hotSlots.put(accountId, slotCount);
+        return total;
+    }
+
+    /**
+     * 关闭分槽：各槽余额并回主行
+     * @return 总余额
+     */
+    public BigDecimal disable(String accountId) {
+        BigDecimal total = fold(accountId);
+        jdbcTemplate.update(SET_ACCOUNT_SQL, total, 0, accountId);
+        hotSlots.remove(accountId);
+        return total;
+    }
+
+    /**
+     * 注销等须确保余额全部回到主行时调用：锁定主行复核 hot_slots，已分槽（路由表可能尚未同步）则关闭分槽
+     * @return false 表示账户不存在或未分槽
+     */
+    public boolean disableIfHot(String accountId) {
+        AccountRow row = findLockedAccount(accountId).orElse(null);
+        if (row == null || row.hotSlots() == 0) {
+            return false;
+        }
+        disable(accountId);
+        return true;
+    }
+
+    // 锁定并删除全部槽，返回主行 + 各槽的总余额（不校验账户状态，注销时也可调用）
+    private BigDecimal fold(String accountId) {
+        BigDecimal base = lockAccount(accountId).balance();
+        BigDecimal total = lockSlots(accountId).stream().map(Slot::balance).reduce(base, BigDecimal::add);
+        jdbcTemplate.update(DELETE_SLOTS_SQL, accountId);
+        return total;
+    }
+
+    // 锁定主行并校验状态，返回主行余额
+    private BigDecimal lockActiveAccount(String accountId) {
+        AccountRow row = lockAccount(accountId);
+        if (!AccountStatus.ACTIVE.name().equals(row.status())) {
+            throw new AccountStatusException("账户状态异常: " + row.status());
+        }
+        return row.balance();
+    }
+
+    private AccountRow lockAccount(String accountId) {
+        return findLockedAccount(accountId).orElseThrow(AccountNotFoundException::new);
+    }
+
+    // 锁定主行；读到的 hot_slots 在行锁下是准确的，顺带更正路由
+    private Optional<AccountRow> findLockedAccount(String accountId) {
+        Optional<AccountRow> row = jdbcTemplate.query(LOCK_ACCOUNT_SQL,
+                (rs, rowNum) -> new AccountRow(
+                        rs.getBigDecimal("balance"), rs.getString("status"), rs.getInt("hot_slots")),
+                accountId)
+                .stream()
+                .findFirst();
+        row.ifPresent(r -> route(accountId, r.hotSlots()));
+        return row;
+    }
+
+    private void route(String accountId, int slots) {
+        if (slots > 0) {
+            hotSlots.put(accountId, slots);
+        } else {
+            hotSlots.remove(accountId);
+        }
+    }
+
+    private List<Slot> lockSlots(String accountId) {
+        return jdbcTemplate.query(LOCK_SLOTS_SQL,
+                (rs, rowNum) -> new Slot(rs.getInt("slot_no"), rs.getBigDecimal("balance")),
+                accountId);
+    }
+
+    private record AccountRow(BigDecimal balance, String status, int hotSlots) {
+    }
+
+    private record Slot(int slotNo, BigDecimal balance) {
+    }
+}
@@ -0,0 +1,232 @@
+package com.bank.customer.component;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bank.customer.entity.IdempotencyRecord;
+import com.bank.customer.entity.IdempotencyRecordId;
+import com.bank.customer.entity.Transaction;
+import com.bank.customer.exception.BusinessException;
+import com.bank.customer.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Idempotency-Key 幂等存储
+ * 内存中保存有界、按 TTL 过期的结果缓存，并以 idempotency_record 表兜底；
+ * 键按登录用户隔离，并保存请求摘要；重试请求直接返回首次执行的 Transaction，不再改动账户余额。
+ */
+@Component
+public class IdempotencyStore {
+    // 与 idempotency_record.idempotency_key 列宽一致
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxEntries;
+    private final Duration ttl;
+
+    private final Map<IdempotencyRecordId, CachedResult> cache = new ConcurrentHashMap<>();
+    // 按写入顺序记录键，超出容量时淘汰最早的
+    private final Queue<IdempotencyRecordId> insertionOrder = new ConcurrentLinkedQueue<>();
+    // 正在执行中的请求，同键并发重试等待同一结果
+    private final Map<IdempotencyRecordId, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyStore(
+            IdempotencyRecordRepository recordRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${bank.idempotency.max-entries:100000}") int maxEntries,
+            @Value("${bank.idempotency.ttl-hours:24}") long ttlHours) {
+        this.recordRepository = recordRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxEntries = maxEntries;
+        this.ttl = Duration.ofHours(ttlHours);
+    }
+
+    /**
+     * 按幂等键执行操作；未携带键时直接执行
+     * 键按登录用户隔离；同一键再次提交时操作与参数须与首次一致，否则拒绝
+     * 携带了键但为空白或超过 64 个字符时拒绝，不执行操作
+     * @param key 请求头 Idempotency-Key
+     * @param principal 发起请求的登录用户
+     * @param endpoint 操作类型（deposit/withdraw/transfer）
+     * @param request 请求参数（按顺序参与摘要）
+     * @param action 实际的记账操作，在幂等记录的事务内执行
+     */
+    public Transaction execute(String key, String principal, String endpoint, List<?> request,
+            Supplier<Transaction> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BusinessException("Idempotency-Key 不能为空且不能超过 " + MAX_KEY_LENGTH + " 个字符");
+        }
+        if (principal == null) {
+            throw new BusinessException("Idempotency-Key 须在登录后使用");
+        }
+        IdempotencyRecordId id = new IdempotencyRecordId(principal, key);
+        String requestHash = hash(endpoint, request);
+        CachedResult cached = cache.get(id);
+        if (cached != null && !cached.isExpired()) {
+            return check(cached.endpoint(), cached.requestHash(), endpoint, requestHash, cached.transaction());
+        }
+
+        InFlight current = new InFlight(endpoint, requestHash, new CompletableFuture<>());
+        InFlight existing = inFlight.putIfAbsent(id, current);
+        if (existing != null) {
+            try {
+                Transaction result = existing.future().join();
+                return check(existing.endpoint(), existing.requestHash(), endpoint, requestHash, result);
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+        try {
+            Transaction result = executeOnce(id, endpoint, requestHash, action);
+            current.future().complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            current.future().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id);
+        }
+    }
+
+    private Transaction executeOnce(IdempotencyRecordId id, String endpoint, String requestHash,
+            Supplier<Transaction> action) {
+        IdempotencyRecord stored = recordRepository.findById(id).orElse(null);
+        if (stored != null) {
+            return remember(id, stored, endpoint, requestHash);
+        }
+        try {
+            // 记账与幂等记录同一事务提交；其他节点抢先写入时本次整体回滚
+            // （记账服务检测到调用方事务时只走直接改库的路径，回滚即撤销资金变动）
+            Transaction result = transactionTemplate.execute(status -> {
+                Transaction t = action.get();
+                recordRepository.saveAndFlush(new IdempotencyRecord(
+                        id.getPrincipal(), id.getIdempotencyKey(), endpoint, requestHash, toJson(t), LocalDateTime.now()));
+                return t;
+            });
+            put(id, endpoint, requestHash, result);
+            return result;
+        } catch (DataIntegrityViolationException e) {
+            return recordRepository.findById(id)
+                    .map(record -> remember(id, record, endpoint, requestHash))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private Transaction remember(IdempotencyRecordId id, IdempotencyRecord stored, String endpoint, String requestHash) {
+        Transaction transaction = fromJson(stored.getResponseBody());
+        put(id, stored.getEndpoint(), stored.getRequestHash(), transaction);
+        return check(stored.getEndpoint(), stored.getRequestHash(), endpoint, requestHash, transaction);
+    }
+
+    private Transaction check(String storedEndpoint, String storedHash, String endpoint, String requestHash,
+            Transaction transaction) {
+        if (!storedEndpoint.equals(endpoint)) {
+            throw new BusinessException("幂等键已用于其他操作: " + storedEndpoint);
+        }
+        if (!storedHash.equals(requestHash)) {
+            throw new BusinessException("幂等键已用于参数不同的请求");
+        }
+        return transaction;
+    }
+
+    private void put(IdempotencyRecordId id, String endpoint, String requestHash, Transaction transaction) {
+        CachedResult result = new CachedResult(endpoint, requestHash, transaction,
+                System.currentTimeMillis() + ttl.toMillis());
+        if (cache.put(id, result) == null) {
+            insertionOrder.add(id);
+        }
+        while (cache.size() > maxEntries) {
+            IdempotencyRecordId eldest = insertionOrder.poll();
+            if (eldest == null) {
+                break;
+            }
+            cache.remove(eldest);
+        }
+    }
+
+    // 操作与参数的 SHA-256 摘要；金额按数值归一化，10 与 10.00 视为同一请求
+    private static String hash(String endpoint, List<?> request) {
+        StringBuilder canonical = new StringBuilder(endpoint);
+        for (Object value : request) {
+            canonical.append('\n').append(normalize(value));
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private static String normalize(Object value) {
+        if (value instanceof BigDecimal amount) {
+            return amount.stripTrailingZeros().toPlainString();
+        }
+        if (value instanceof Double amount) {
+            return BigDecimal.valueOf(amount).stripTrailingZeros().toPlainString();
+        }
+        return String.valueOf(value);
+    }
+
+    // ==== 定时清理过期记录 ====
+    @Scheduled(fixedDelayString = "${bank.idempotency.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        cache.values().removeIf(CachedResult::isExpired);
+        insertionOrder.removeIf(key -> !cache.containsKey(key));
+        transactionTemplate.executeWithoutResult(
+                status -> recordRepository.deleteExpired(LocalDateTime.now().minus(ttl)));
+    }
+
+    private String toJson(Transaction transaction) {
+        try {
+            return objectMapper.writeValueAsString(transaction);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("幂等结果序列化失败", e);
+        }
+    }
+
+    private Transaction fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, Transaction.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("幂等结果反序列化失败", e);
+        }
+    }
+
+    private record InFlight(String endpoint, String requestHash, CompletableFuture<Transaction> future) {
+    }
+
+    private record CachedResult(String endpoint, String requestHash, Transaction transaction, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.bank.customer.component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.bank.customer.entity.Transaction;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 记账日志（bank.ledger.journal.enabled=true 时启用，配合 striped 记账引擎）
+ * 每笔存款 / 取款 / 转账以借贷双方记录顺序追加到内存映射的分段文件，force 落盘后才向调用方确认；
+ * 并发写入共享一次 force（组提交）。已回写数据库的分段由引擎通知后删除，启动时重放未回写部分。
+ *
+ * 记录格式：int 长度 | int CRC32 | UTF-8 文本 “序号\t类型\t借方\t贷方\t金额\t时间”（外部资金方为空）
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bank.ledger.journal.enabled", havingValue = "true")
+public class LedgerJournal {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final int HEADER_BYTES = 8;
+
+    private final Path dir;
+    private final int segmentBytes;
+
+    private final Object appendLock = new Object();
+    private final Object forceLock = new Object();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long lastSeq;
+    private volatile long durableSeq;
+
+    public LedgerJournal(
+            @Value("${bank.ledger.journal.dir:journal}") String dir,
+            @Value("${bank.ledger.journal.segment-size-mb:64}") int segmentSizeMb) {
+        this.dir = Paths.get(dir);
+        this.segmentBytes = segmentSizeMb * 1024 * 1024;
+    }
+
+    /**
+     * 读取所有分段，返回序号大于 appliedSeq 的记录，并在其后开启新分段
+     * 尾部不完整或校验失败的记录视为未确认的写入，丢弃
+     * @param appliedSeq 数据库中已回写的最大序号
+     */
+    public List<Journaled> open(long appliedSeq) {
+        synchronized (appendLock) {
+            try {
+                Files.createDirectories(dir);
+                List<Journaled> unapplied = new ArrayList<>();
+                long maxSeq = appliedSeq;
+                for (Path segment : segments()) {
+                    for (Journaled record : read(segment)) {
+                        maxSeq = Math.max(maxSeq, record.seq());
+                        if (record.seq() > appliedSeq) {
+                            unapplied.add(record);
+                        }
+                    }
+                }
+                lastSeq = maxSeq;
+                durableSeq = maxSeq;
+                roll();
+                log.info("记账日志打开，待重放 {} 条，下一序号 {}", unapplied.size(), lastSeq + 1);
+                return unapplied;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * 追加一条记录（尚未落盘），返回分配的序号；调用方确认前须再调用 {@link #sync(long)}
+     */
+    public long append(Transaction transaction) {
+        synchronized (appendLock) {
+            long seq = lastSeq + 1;
+            byte[] payload = encode(seq, transaction);
+            if (buffer.remaining() < HEADER_BYTES + payload.length) {
+                buffer.force();
+                roll();
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            buffer.putInt(payload.length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(payload);
+            lastSeq = seq;
+            return seq;
+        }
+    }
+
+    // ==== 组提交：一次 force 覆盖此前所有已追加的记录 ====
+    public void sync(long seq) {
+        if (durableSeq >= seq) {
+            return;
+        }
+        synchronized (forceLock) {
+            if (durableSeq >= seq) {
+                return;
+            }
+            MappedByteBuffer current;
+            long target;
+            synchronized (appendLock) {
+                current = buffer;
+                target = lastSeq;
+            }
+            // 换段时旧分段已在 append 中 force，这里只需 force 当前分段
+            current.force();
+            durableSeq = target;
+        }
+    }
+
+    /**
+     * 删除已全部回写的分段（当前分段除外）
+     * 分段文件名为其首条记录序号，下一分段的首序号 - 1 不超过 appliedSeq 即可删除
+     */
+    public void release(long appliedSeq) {
+        try {
+            List<Path> segments = segments();
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                if (firstSeq(segments.get(i + 1)) - 1 > appliedSeq) {
+                    break;
+                }
+                try {
+                    Files.deleteIfExists(segments.get(i));
+                } catch (IOException e) {
+                    // 映射尚未被回收时部分系统不允许删除，下次再试
+                    log.debug("记账日志分段 {} 暂不能删除", segments.get(i), e);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("清理记账日志分段失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (buffer != null) {
+                buffer.force();
+                channel.close();
+            }
+        }
+    }
+
+    // 调用方持有 appendLock
+    private void roll() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            Path file = dir.resolve(SEGMENT_PREFIX + String.format("%020d", lastSeq + 1) + SEGMENT_SUFFIX);
+            // 同名分段只可能是上次未写入有效记录的空段
+            Files.deleteIfExists(file);
+            channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long firstSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static List<Journaled> read(Path segment) throws IOException {
+        List<Journaled> records = new ArrayList<>();
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            while (in.remaining() >= HEADER_BYTES) {
+                int length = in.getInt();
+                int checksum = in.getInt();
+                if (length <= 0 || length > in.remaining()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.get(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("记账日志 {} 尾部记录校验失败，已丢弃", segment.getFileName());
+                    break;
+                }
+                records.add(decode(payload));
+            }
+        }
+        return records;
+    }
+
+    private static byte[] encode(long seq, Transaction t) {
+        return String.join("\t",
+                Long.toString(seq),
+                t.getTransactionType(),
+                t.getFromAccountId() == null ? "" : t.getFromAccountId(),
+                t.getToAccountId() == null ? "" : t.getToAccountId(),
+                t.getAmount().toPlainString(),
+                t.getTransactionTime().toString())
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Journaled decode(byte[] payload) {
+        String[] f = new String(payload, StandardCharsets.UTF_8).split("\t", -1);
+        return new Journaled(Long.parseLong(f[0]), new Transaction(
+                null,
+                f[2].isEmpty() ? null : f[2],
+                f[3].isEmpty() ? null : f[3],
+                new BigDecimal(f[4]),
+                f[1],
+                LocalDateTime.parse(f[5]),
+                null));
+    }
+
+    // 日志中的一条记录
+    public record Journaled(long seq, Transaction transaction) {
+    }
+}
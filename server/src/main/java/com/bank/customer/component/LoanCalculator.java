@@ -1,10 +1,14 @@
 package com.bank.customer.component;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 import org.springframework.stereotype.Component;
 
@@ -65,4 +69,141 @@ public class LoanCalculator {
         
         return schedule;
     }
-}
\ No newline at end of file
+
+    // ==== 批量计算（调价重算等场景） ====
+
+    /**
+     * 下一期还款日（还款日逐月顺延，与 {@link #generateRepaymentSchedule} 一致）
+     * 顺延的还款日至多比起始日按月对应的日期早 3 天，超过贷款结束日即已无下一期
+     * @return 下一期还款日，最后一期之后为 null
+     */
+    public LocalDate nextRepaymentDate(LoanApplication loan, LocalDate repaymentDate) {
+        LocalDate next = repaymentDate.plusMonths(1);
+        return next.isAfter(loan.getEndDate()) ? null : next;
+    }
+
+    /**
+     * 批量计算每月还款额与还款计划，结果与 {@link #calculateMonthlyPayment} /
+     * {@link #generateRepaymentSchedule} 逐分一致
+     * 多核并行；相同月利率与期限的贷款共用年金系数，还款计划以“分”为单位存放在 long 数组中，
+     * 持久化时再通过 {@link Amortization#toRepayments} 转为实体
+     * @param loans 贷款条件
+     * @return 与 loans 按下标对应的计算结果
+     */
+    public List<Amortization> amortizeAll(List<LoanTerms> loans) {
+        Map<FactorKey, BigDecimal> factors = new ConcurrentHashMap<>();
+        Amortization[] results = new Amortization[loans.size()];
+        IntStream.range(0, loans.size()).parallel().forEach(i -> {
+            LoanTerms loan = loans.get(i);
+            long rateE10 = monthlyRate(loan.annualRate()).unscaledValue().longValueExact();
+            BigDecimal factor = factors.computeIfAbsent(
+                    new FactorKey(rateE10, loan.term()), LoanCalculator::annuityFactor);
+            results[i] = amortize(loan.principal(), rateE10, loan.term(), factor);
+        });
+        return List.of(results);
+    }
+
+    // 单笔贷款，供按需计算使用（不走并行与系数缓存）
+    public Amortization amortize(BigDecimal principal, BigDecimal annualRate, int term) {
+        long rateE10 = monthlyRate(annualRate).unscaledValue().longValueExact();
+        return amortize(principal, rateE10, term, annuityFactor(new FactorKey(rateE10, term)));
+    }
+
+    private static Amortization amortize(BigDecimal principal, long rateE10, int term, BigDecimal factor) {
+        long payment = principal.multiply(factor).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        long remaining = principal.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        long[] principalCents = new long[term];
+        long[] interestCents = new long[term];
+        for (int i = 0; i < term; i++) {
+            long interest = interestCents(remaining, rateE10);
+            interestCents[i] = interest;
+            principalCents[i] = payment - interest;
+            remaining -= payment - interest;
+        }
+        return new Amortization(payment, principalCents, interestCents);
+    }
+
+    // 月利率，与逐笔计算相同的精度（10 位小数）
+    private static BigDecimal monthlyRate(BigDecimal annualRate) {
+        return annualRate.divide(BigDecimal.valueOf(12), 10, RoundingMode.HALF_UP);
+    }
+
+    // 年金系数 r(1+r)^n / ((1+r)^n - 1)，每月还款额 = 本金 × 系数；34 位有效数字足以保证舍入到分与逐笔计算一致
+    private static BigDecimal annuityFactor(FactorKey key) {
+        if (key.rateE10() == 0) {
+            return BigDecimal.ONE.divide(BigDecimal.valueOf(key.term()), MathContext.DECIMAL128);
+        }
+        BigDecimal rate = BigDecimal.valueOf(key.rateE10(), 10);
+        BigDecimal pow = rate.add(BigDecimal.ONE).pow(key.term(), MathContext.DECIMAL128);
+        return rate.multiply(pow).divide(pow.subtract(BigDecimal.ONE), MathContext.DECIMAL128);
+    }
+
+    // 剩余本金（分）× 月利率，四舍五入到分；乘积溢出 long 时退回 BigDecimal
+    private static long interestCents(long remaining, long rateE10) {
+        try {
+            long product = Math.multiplyExact(remaining, rateE10);
+            long half = 5_000_000_000L;
+            return product >= 0
+                    ? (product + half) / 10_000_000_000L
+                    : -((-product + half) / 10_000_000_000L);
+        } catch (ArithmeticException e) {
+            return BigDecimal.valueOf(remaining).multiply(BigDecimal.valueOf(rateE10))
+                    .movePointLeft(10).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        }
+    }
+
+    // 批量计算的输入：本金、年利率、期限（月）
+    public record LoanTerms(BigDecimal principal, BigDecimal annualRate, int term) {
+    }
+
+    private record FactorKey(long rateE10, int term) {
+    }
+
+    /**
+     * 紧凑的还款计划：每月还款额与各期本金、利息（单位：分）
+     */
+    public record Amortization(long paymentCents, long[] principalCents, long[] interestCents) {
+        public BigDecimal monthlyPayment() {
+            return BigDecimal.valueOf(paymentCents, 2);
+        }
+
+        public int term() {
+            return principalCents.length;
+        }
+
+        // 第 period 期（从 1 开始）的还款记录，尚未持久化
+        public LoanRepayment toRepayment(LoanApplication loan, int period, LocalDate repaymentDate) {
+            LoanRepayment repayment = new LoanRepayment();
+            repayment.setLoan(loan);
+            repayment.setRepaymentDate(repaymentDate);
+            repayment.setAmount(monthlyPayment());
+            repayment.setPrincipal(BigDecimal.valueOf(principalCents[period - 1], 2));
+            repayment.setInterest(BigDecimal.valueOf(interestCents[period - 1], 2));
+            repayment.setStatus(LoanRepayment.RepaymentStatus.PENDING);
+            return repayment;
+        }
+
+        // 还款日对应的期次（从 1 开始），不是计划内的还款日返回 0；还款日推算与 toRepayments 一致
+        public int periodOf(LoanApplication loan, LocalDate repaymentDate) {
+            LocalDate date = loan.getStartDate().plusMonths(1);
+            for (int period = 1; period <= term() && !date.isAfter(repaymentDate); period++) {
+                if (date.equals(repaymentDate)) {
+                    return period;
+                }
+                date = date.plusMonths(1);
+            }
+            return 0;
+        }
+
+        // 转为全部还款记录（持久化时调用），还款日从起始日次月起逐月顺延
+        public List<LoanRepayment> toRepayments(LoanApplication loan) {
+            List<LoanRepayment> schedule = new ArrayList<>(term());
+            LocalDate repaymentDate = loan.getStartDate().plusMonths(1);
+            for (int period = 1; period <= term(); period++) {
+                schedule.add(toRepayment(loan, period, repaymentDate));
+                repaymentDate = repaymentDate.plusMonths(1);
+            }
+            return schedule;
+        }
+    }
+}
@@ -0,0 +1,559 @@
+package com.bank.customer.component;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bank.customer.component.AccountCache.CachedAccount;
+import com.bank.customer.entity.Account;
+import com.bank.customer.entity.AccountStatus;
+import com.bank.customer.entity.Transaction;
+import com.bank.customer.event.LedgerOutbox;
+import com.bank.customer.exception.AccountNotFoundException;
+import com.bank.customer.exception.AccountStatusException;
+import com.bank.customer.exception.BusinessException;
+import com.bank.customer.exception.EngineUnavailableException;
+import com.bank.customer.exception.HotAccountException;
+import com.bank.customer.exception.InsufficientBalanceException;
+import com.bank.customer.repository.AccountRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 分段锁内存记账引擎（bank.ledger.engine=striped 时启用）
+ * 活跃账户余额常驻内存，按 accountId 分段加锁完成存取款、转账与透支校验，
+ * 变更按提交顺序排队，由后台定时批量回写 account 与 account_transaction 表。
+ * 启用记账日志时，每笔变更先写入日志并落盘再确认，回写进度记入 ledger_journal_checkpoint，
+ * 启动时重放日志中尚未回写的部分。
+ * 绕过引擎直接改库的事务须先调用 {@link #bypass}：账户在该事务结束前被钉住，引擎对其记账等待释放；
+ * 每笔记账都经账户缓存复核状态。分槽账户不进入内存表，加载时发现即抛出 {@link HotAccountException} 交回调用方。
+ * 记账日志写入或落盘失败后引擎停止受理，之后的记账抛出 {@link EngineUnavailableException}，由调用方直接改库。
+ * <p>
+ * 内存余额只有在全局唯一的引擎实例上才成立：同时有两个实例以 striped 运行，或有绕过引擎却不调用
+ * {@link #bypass} 的直接扣款，都会在内存余额之外改变账户，造成透支。因此引擎启动时须抢到
+ * ledger_engine_lease 租约（抢不到则启动失败），运行中定时续期，续期失败即停止受理；
+ * 其他实例应以 jpa 引擎运行。
+ * <p>
+ * 回写按账户条件更新（仅 ACTIVE）。整批回写失败时逐笔重写：并发冲突等暂时性错误整体留在队首待下次重试；
+ * 单笔自身无法写入（账户已冻结、注销或不存在，约束冲突等）时记入 ledger_dead_letter 并告警，
+ * 同时从内存余额中撤销该笔，不阻塞其后的记账回写。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bank.ledger.engine", havingValue = "striped")
+public class StripedLedgerEngine {
+    // 入队后账户可能被其他实例冻结或注销，回写时复核状态
+    private static final String UPDATE_BALANCE_SQL =
+            "UPDATE account SET balance = balance + ? WHERE account_id = ? AND status = 'ACTIVE'";
+    private static final String INSERT_DEAD_LETTER_SQL =
+            "INSERT INTO ledger_dead_letter (journal_seq, from_account_id, to_account_id, amount, transaction_type, "
+                    + "transaction_time, error) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    // 无人持有或已过期时抢占；本实例已持有时续期
+    private static final String ACQUIRE_LEASE_SQL =
+            "UPDATE ledger_engine_lease SET owner = ?, expires_at = DATEADD(SECOND, ?, GETDATE()) "
+                    + "WHERE id = 1 AND (owner = ? OR owner IS NULL OR expires_at < GETDATE())";
+    private static final String RENEW_LEASE_SQL =
+            "UPDATE ledger_engine_lease SET expires_at = DATEADD(SECOND, ?, GETDATE()) WHERE id = 1 AND owner = ?";
+    private static final String RELEASE_LEASE_SQL =
+            "UPDATE ledger_engine_lease SET owner = NULL, expires_at = GETDATE() WHERE id = 1 AND owner = ?";
+    private static final String LOAD_CHECKPOINT_SQL =
+            "SELECT applied_seq FROM ledger_journal_checkpoint WHERE id = 1";
+    private static final String UPDATE_CHECKPOINT_SQL =
+            "UPDATE ledger_journal_checkpoint SET applied_seq = ? WHERE id = 1 AND applied_seq < ?";
+
+    private final AccountRepository accountRepository;
+    private final AccountCache accountCache;
+    private final HotAccountLedger hotAccountLedger;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionBatchWriter transactionWriter;
+    private final LedgerOutbox ledgerOutbox;
+    // 记账日志（bank.ledger.journal.enabled=true 时存在）
+    private final Optional<LedgerJournal> journal;
+    private final TransactionTemplate transactionTemplate;
+    private final Object[] stripes;
+    private final int batchSize;
+    private final long pinWaitNanos;
+    private final int leaseSeconds;
+    // 租约持有者标识：进程名（pid@host）+ 随机后缀，同一主机重启后也不会与旧进程混淆
+    private final String leaseOwner = leaseOwnerName();
+    // 最近一次成功抢占或续期的时间
+    private volatile long leaseRenewedAt;
+
+    // 内存余额表（仅缓存 ACTIVE 账户）
+    private final Map<String, BigDecimal> balances = new ConcurrentHashMap<>();
+    // 被外部事务钉住的账户 → 未结束的事务数；只在该账户的分段锁内修改
+    private final Map<String, Integer> pinned = new ConcurrentHashMap<>();
+    // 释放钉住时递增并唤醒等待的记账
+    private final Object unpinned = new Object();
+    private long releases;
+    // 记账日志写入或落盘失败、租约丢失后置位，此后拒绝新的记账（重启后从日志与检查点恢复）
+    private volatile boolean failed;
+    // 待回写的变更，按入队顺序写库
+    private final BlockingDeque<LedgerEntry> pending = new LinkedBlockingDeque<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // 日志序号分配与入队保持同一顺序，回写检查点才不会越过未回写的记录
+    private final Object journalOrder = new Object();
+
+    public StripedLedgerEngine(
+            AccountRepository accountRepository,
+            AccountCache accountCache,
+            HotAccountLedger hotAccountLedger,
+            JdbcTemplate jdbcTemplate,
+            TransactionBatchWriter transactionWriter,
+            LedgerOutbox ledgerOutbox,
+            Optional<LedgerJournal> journal,
+            PlatformTransactionManager transactionManager,
+            @Value("${bank.ledger.stripes:64}") int stripeCount,
+            @Value("${bank.ledger.batch-size:500}") int batchSize,
+            @Value("${bank.ledger.pin-wait-ms:10000}") long pinWaitMillis,
+            @Value("${bank.ledger.lease.ttl-seconds:30}") int leaseSeconds) {
+        this.accountRepository = accountRepository;
+        this.accountCache = accountCache;
+        this.hotAccountLedger = hotAccountLedger;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionWriter = transactionWriter;
+        this.ledgerOutbox = ledgerOutbox;
+        this.journal = journal;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // 回写独立提交，不受调用方事务回滚影响
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.stripes = new Object[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Object();
+        }
+        this.batchSize = batchSize;
+        this.pinWaitNanos = TimeUnit.MILLISECONDS.toNanos(pinWaitMillis);
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    // ==== 启动时抢占单实例租约，再重放记账日志中尚未回写的记录 ====
+    @PostConstruct
+    public void recover() {
+        if (jdbcTemplate.update(ACQUIRE_LEASE_SQL, leaseOwner, leaseSeconds, leaseOwner) != 1) {
+            throw new IllegalStateException("striped 记账引擎租约已被其他实例持有，同一时间只能有一个实例启用该引擎");
+        }
+        leaseRenewedAt = System.currentTimeMillis();
+        log.info("记账引擎已取得租约: {}", leaseOwner);
+        journal.ifPresent(j -> {
+            Long applied = jdbcTemplate.queryForObject(LOAD_CHECKPOINT_SQL, Long.class);
+            for (LedgerJournal.Journaled record : j.open(applied)) {
+                pending.add(new LedgerEntry(record.seq(), record.transaction()));
+            }
+            flush();
+        });
+    }
+
+    // ==== 存款 ====
+    public Transaction deposit(String accountId, BigDecimal amount) {
+        checkAccepting();
+        return acknowledge(whenUnpinned(() -> {
+            synchronized (stripeFor(accountId)) {
+                if (pinned.containsKey(accountId)) {
+                    return null;
+                }
+                BigDecimal balance = loadBalance(accountId);
+                LedgerEntry entry = enqueue(new Transaction(
+                        null, null, accountId, amount, "deposit", LocalDateTime.now(), null));
+                balances.put(accountId, balance.add(amount));
+                return entry;
+            }
+        }));
+    }
+
+    // ==== 取款（含透支校验） ====
+    public Transaction withdraw(String accountId, BigDecimal amount) {
+        checkAccepting();
+        return acknowledge(whenUnpinned(() -> {
+            synchronized (stripeFor(accountId)) {
+                if (pinned.containsKey(accountId)) {
+                    return null;
+                }
+                BigDecimal balance = loadBalance(accountId);
+                if (balance.compareTo(amount) < 0) {
+                    throw new InsufficientBalanceException();
+                }
+                LedgerEntry entry = enqueue(new Transaction(
+                        null, accountId, null, amount, "withdraw", LocalDateTime.now(), null));
+                balances.put(accountId, balance.subtract(amount));
+                return entry;
+            }
+        }));
+    }
+
+    // ==== 转账：按分段序号先后锁定两个账户 ====
+    public Transaction transfer(String fromAccountId, String toAccountId, BigDecimal amount) {
+        checkAccepting();
+        int fromStripe = stripeIndex(fromAccountId);
+        int toStripe = stripeIndex(toAccountId);
+        return acknowledge(whenUnpinned(() -> {
+            synchronized (stripes[Math.min(fromStripe, toStripe)]) {
+                synchronized (stripes[Math.max(fromStripe, toStripe)]) {
+                    if (pinned.containsKey(fromAccountId) || pinned.containsKey(toAccountId)) {
+                        return null;
+                    }
+                    BigDecimal fromBalance = loadBalance(fromAccountId);
+                    BigDecimal toBalance = loadBalance(toAccountId);
+                    if (fromBalance.compareTo(amount) < 0) {
+                        throw new InsufficientBalanceException();
+                    }
+                    LedgerEntry entry = enqueue(new Transaction(
+                            null, fromAccountId, toAccountId, amount, "transfer", LocalDateTime.now(), null));
+                    balances.put(fromAccountId, fromBalance.subtract(amount));
+                    balances.put(toAccountId, toBalance.add(amount));
+                    return entry;
+                }
+            }
+        }));
+    }
+
+    /**
+     * 把账户交给当前事务直接改库：钉住账户、移出内存表并回写所有待写变更；
+     * 事务结束（提交或回滚）后才释放，期间引擎对这些账户的记账等待，释放后从库中重新加载余额与状态。
+     * 账户状态变更、批量转账、计息、自动扣款等绕过引擎的操作必须在其事务内、锁定账户行之前调用。
+     */
+    public void bypass(Collection<String> accountIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("绕过记账引擎改库须在事务中进行");
+        }
+        List<String> ids = List.copyOf(new TreeSet<>(accountIds));
+        for (String accountId : ids) {
+            synchronized (stripeFor(accountId)) {
+                pinned.merge(accountId, 1, Integer::sum);
+                balances.remove(accountId);
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                release(ids);
+            }
+        });
+        // 钉住之后不会再有这些账户的新变更入队，回写完即可由调用方直接改库
+        flush();
+    }
+
+    public void bypass(String... accountIds) {
+        bypass(List.of(accountIds));
+    }
+
+    // ==== 定时续期租约：被其他实例接管，或数据库不可用直到租约可能已过期，则停止受理 ====
+    @Scheduled(fixedDelayString = "${bank.ledger.lease.renew-interval-ms:10000}")
+    public void renewLease() {
+        if (failed) {
+            return;
+        }
+        boolean renewed;
+        try {
+            renewed = jdbcTemplate.update(RENEW_LEASE_SQL, leaseSeconds, leaseOwner) == 1;
+        } catch (RuntimeException e) {
+            if (System.currentTimeMillis() - leaseRenewedAt >= leaseSeconds * 1000L) {
+                failClosed("记账引擎租约续期失败且已过期", e);
+            } else {
+                log.warn("记账引擎租约续期失败，待下次重试", e);
+            }
+            return;
+        }
+        if (renewed) {
+            leaseRenewedAt = System.currentTimeMillis();
+        } else {
+            failClosed("记账引擎租约已被其他实例接管", null);
+        }
+    }
+
+    // ==== 定时回写 ====
+    @Scheduled(fixedDelayString = "${bank.ledger.flush-interval-ms:50}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("记账引擎回写失败，待下次重试", e);
+        }
+    }
+
+    // 按入队顺序分批回写；整批失败时逐笔重写，仍有暂时性失败时把未写部分放回队首
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<LedgerEntry> batch = new ArrayList<>(batchSize);
+            long appliedSeq = 0;
+            while (pending.drainTo(batch, batchSize) > 0) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write(batch));
+                } catch (RuntimeException e) {
+                    writeOneByOne(batch);
+                }
+                appliedSeq = batch.get(batch.size() - 1).seq();
+                batch.clear();
+            }
+            if (appliedSeq > 0) {
+                long released = appliedSeq;
+                journal.ifPresent(j -> j.release(released));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // 逐笔回写：单笔失败且不是暂时性错误时记入死信；死信也写不进（数据库不可用）时放回队首并抛出
+    private void writeOneByOne(List<LedgerEntry> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            LedgerEntry entry = batch.get(i);
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(List.of(entry)));
+            } catch (RuntimeException e) {
+                if (e instanceof TransientDataAccessException || !park(entry, e)) {
+                    List<LedgerEntry> rest = batch.subList(i, batch.size());
+                    for (int j = rest.size() - 1; j >= 0; j--) {
+                        pending.addFirst(rest.get(j));
+                    }
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 记入死信并推进检查点（同一事务），再从内存余额中撤销该笔：内存余额 = 库中余额 + 待写变更，
+     * 该笔不再回写，内存中也不应再包含它。
+     */
+    private boolean park(LedgerEntry entry, RuntimeException cause) {
+        Transaction t = entry.transaction();
+        String error = String.valueOf(cause.getMessage());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(INSERT_DEAD_LETTER_SQL, entry.seq(), t.getFromAccountId(), t.getToAccountId(),
+                        t.getAmount(), t.getTransactionType(), Timestamp.valueOf(t.getTransactionTime()),
+                        error.length() > 1000 ? error.substring(0, 1000) : error);
+                if (journal.isPresent()) {
+                    jdbcTemplate.update(UPDATE_CHECKPOINT_SQL, entry.seq(), entry.seq());
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("记账引擎死信写入失败，该笔留在队首待重试: {}", t, e);
+            return false;
+        }
+        if (t.getFromAccountId() != null) {
+            adjust(t.getFromAccountId(), t.getAmount());
+        }
+        if (t.getToAccountId() != null) {
+            adjust(t.getToAccountId(), t.getAmount().negate());
+        }
+        log.error("记账引擎回写被拒绝，已记入 ledger_dead_letter 待人工处理: {}", t, cause);
+        return true;
+    }
+
+    private void adjust(String accountId, BigDecimal delta) {
+        synchronized (stripeFor(accountId)) {
+            balances.computeIfPresent(accountId, (id, balance) -> balance.add(delta));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            flush();
+        } finally {
+            jdbcTemplate.update(RELEASE_LEASE_SQL, leaseOwner);
+        }
+    }
+
+    private void write(List<LedgerEntry> batch) {
+        // 同一批内按账户合并余额变化（借方减、贷方加），并按 accountId 排序更新以保持加锁顺序一致
+        Map<String, BigDecimal> deltas = new TreeMap<>();
+        for (LedgerEntry entry : batch) {
+            Transaction t = entry.transaction();
+            if (t.getFromAccountId() != null) {
+                deltas.merge(t.getFromAccountId(), t.getAmount().negate(), BigDecimal::add);
+            }
+            if (t.getToAccountId() != null) {
+                deltas.merge(t.getToAccountId(), t.getAmount(), BigDecimal::add);
+            }
+        }
+        List<Object[]> balanceArgs = new ArrayList<>(deltas.size());
+        deltas.forEach((accountId, delta) -> balanceArgs.add(new Object[] { delta, accountId }));
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, balanceArgs);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 1) {
+                throw new IllegalStateException("回写被拒绝：账户 " + balanceArgs.get(i)[1] + " 不存在或非活跃");
+            }
+        }
+
+        List<Transaction> transactions = batch.stream().map(LedgerEntry::transaction).toList();
+        transactionWriter.insertAll(transactions);
+        // 记账事件与回写同一事务提交
+        ledgerOutbox.recordAll(transactions);
+        if (journal.isPresent()) {
+            long appliedSeq = batch.get(batch.size() - 1).seq();
+            jdbcTemplate.update(UPDATE_CHECKPOINT_SQL, appliedSeq, appliedSeq);
+        }
+    }
+
+    // 调用方需持有分段锁；每笔都经账户缓存复核状态（其他实例的冻结、注销最迟在缓存过期后生效）
+    private BigDecimal loadBalance(String accountId) {
+        BigDecimal balance = balances.get(accountId);
+        if (balance != null) {
+            CachedAccount cached = accountCache.findById(accountId)
+                    .orElseThrow(AccountNotFoundException::new);
+            if (cached.status() == AccountStatus.ACTIVE) {
+                return balance;
+            }
+            balances.remove(accountId);
+            throw new AccountStatusException("账户状态异常: " + cached.status());
+        }
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(AccountNotFoundException::new);
+        if (account.getStatus() != AccountStatus.ACTIVE) {
+            throw new AccountStatusException("账户状态异常: " + account.getStatus());
+        }
+        // 分槽账户的余额不全在主行上，不能由引擎记账；交回调用方走分槽记账
+        if (account.getHotSlots() > 0) {
+            hotAccountLedger.markHot(accountId, account.getHotSlots());
+            throw new HotAccountException(accountId);
+        }
+        balances.put(accountId, account.getBalance());
+        return account.getBalance();
+    }
+
+    // 调用方需持有相关账户的分段锁，入队成功后再改内存余额；写日志失败时什么都没有改变
+    private LedgerEntry enqueue(Transaction transaction) {
+        if (journal.isEmpty()) {
+            LedgerEntry entry = new LedgerEntry(0, transaction);
+            pending.add(entry);
+            return entry;
+        }
+        synchronized (journalOrder) {
+            long seq;
+            try {
+                seq = journal.get().append(transaction);
+            } catch (RuntimeException e) {
+                failClosed("记账日志写入失败", e);
+                throw new EngineUnavailableException();
+            }
+            LedgerEntry entry = new LedgerEntry(seq, transaction);
+            pending.add(entry);
+            return entry;
+        }
+    }
+
+    // 执行一次记账；操作返回 null 表示涉及的账户被钉住，等待释放后重试，超时则拒绝
+    private LedgerEntry whenUnpinned(Supplier<LedgerEntry> operation) {
+        long deadline = System.nanoTime() + pinWaitNanos;
+        while (true) {
+            long seen;
+            synchronized (unpinned) {
+                seen = releases;
+            }
+            LedgerEntry entry = operation.get();
+            if (entry != null) {
+                return entry;
+            }
+            synchronized (unpinned) {
+                while (releases == seen) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new BusinessException("账户正在处理其他业务，请稍后重试");
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(unpinned, remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new BusinessException("账户正在处理其他业务，请稍后重试");
+                    }
+                }
+            }
+        }
+    }
+
+    private void release(List<String> accountIds) {
+        for (String accountId : accountIds) {
+            synchronized (stripeFor(accountId)) {
+                pinned.computeIfPresent(accountId, (id, count) -> count == 1 ? null : count - 1);
+            }
+        }
+        synchronized (unpinned) {
+            releases++;
+            unpinned.notifyAll();
+        }
+    }
+
+    /**
+     * 在分段锁外等待日志落盘（组提交），落盘后才向调用方确认。
+     * 落盘失败时该笔已改动内存余额并已入队，且记录可能已部分写入日志，不能撤销：
+     * 引擎停止受理新的记账，并立即回写（含该笔在内的）全部待写变更，由数据库保证持久后再确认；
+     * 回写也失败时向调用方抛出异常（结果未知），待写变更保留在队列中由定时回写重试。
+     */
+    private Transaction acknowledge(LedgerEntry entry) {
+        if (journal.isEmpty()) {
+            return entry.transaction();
+        }
+        try {
+            journal.get().sync(entry.seq());
+        } catch (RuntimeException e) {
+            failClosed("记账日志落盘失败", e);
+            flush();
+        }
+        return entry.transaction();
+    }
+
+    private void failClosed(String reason, RuntimeException cause) {
+        if (!failed) {
+            failed = true;
+            log.error("{}，记账引擎停止受理，后续记账直接改库", reason, cause);
+        }
+    }
+
+    private void checkAccepting() {
+        if (failed) {
+            throw new EngineUnavailableException();
+        }
+    }
+
+    private static String leaseOwnerName() {
+        String process = ManagementFactory.getRuntimeMXBean().getName();
+        if (process.length() > 60) {
+            process = process.substring(0, 60);
+        }
+        return process + "/" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private Object stripeFor(String accountId) {
+        return stripes[stripeIndex(accountId)];
+    }
+
+    private int stripeIndex(String accountId) {
+        return Math.floorMod(accountId.hashCode(), stripes.length);
+    }
+
+    // seq 为记账日志序号，未启用日志时为 0
+    private record LedgerEntry(long seq, Transaction transaction) {
+    }
+}
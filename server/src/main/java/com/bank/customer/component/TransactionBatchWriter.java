@@ -0,0 +1,78 @@
+package com.bank.customer.component;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.bank.customer.entity.Transaction;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 流水批量写入（JDBC，加入当前事务）
+ * 按块拼成一条多行插入，OUTPUT 取回自增的 transaction_id 并回填到各 Transaction，
+ * 之后写入发件箱的事件才带有流水号。
+ * INSERT ... SELECT ... ORDER BY 保证自增值按 ORDER BY 的顺序分配（OUTPUT 的返回顺序不保证），
+ * 取回的 ID 排序后即与入参一一对应。
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionBatchWriter {
+    // 每行 7 个参数，单条语句不超过 SQL Server 的 2100 个参数上限
+    private static final int ROWS_PER_STATEMENT = 300;
+    private static final String INSERT_PREFIX =
+            "INSERT INTO account_transaction (from_account_id, to_account_id, amount, transaction_type, "
+                    + "transaction_time, description) OUTPUT inserted.transaction_id "
+                    + "SELECT from_account_id, to_account_id, amount, transaction_type, transaction_time, description "
+                    + "FROM (VALUES ";
+    private static final String INSERT_SUFFIX =
+            ") AS v (seq, from_account_id, to_account_id, amount, transaction_type, transaction_time, description) "
+                    + "ORDER BY seq";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // 插入流水并回填 transactionId
+    public void insertAll(List<Transaction> transactions) {
+        for (int from = 0; from < transactions.size(); from += ROWS_PER_STATEMENT) {
+            insertChunk(transactions.subList(from, Math.min(from + ROWS_PER_STATEMENT, transactions.size())));
+        }
+    }
+
+    private void insertChunk(List<Transaction> chunk) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?)");
+        }
+        sql.append(INSERT_SUFFIX);
+
+        List<Integer> ids = new ArrayList<>(chunk.size());
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString());
+            int p = 1;
+            for (int i = 0; i < chunk.size(); i++) {
+                Transaction t = chunk.get(i);
+                ps.setInt(p++, i);
+                ps.setString(p++, t.getFromAccountId());
+                ps.setString(p++, t.getToAccountId());
+                ps.setBigDecimal(p++, t.getAmount());
+                ps.setString(p++, t.getTransactionType());
+                ps.setTimestamp(p++, Timestamp.valueOf(t.getTransactionTime()));
+                ps.setString(p++, t.getDescription());
+            }
+            return ps;
+        }, rs -> {
+            ids.add(rs.getInt(1));
+        });
+        if (ids.size() != chunk.size()) {
+            throw new IllegalStateException("流水写入数量不符: 期望 " + chunk.size() + "，实际 " + ids.size());
+        }
+        ids.sort(null);
+        for (int i = 0; i < chunk.size(); i++) {
+            chunk.get(i).setTransactionId(ids.get(i));
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.bank.customer.component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.bank.customer.exception.BusinessException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 账户交易频率限制（bank.velocity.enabled=true 时启用）
+ * 按转出账户统计 1 分钟 / 1 小时 / 24 小时内的笔数与金额，超限拒绝。
+ * 每个窗口由若干环形时间桶近似（窗口边界精度为一个桶），每个桶压缩为一个 long：
+ * 高 16 位为桶序号标记，中间 16 位为笔数，低 32 位为金额（分），均以 CAS 无锁更新，溢出时饱和。
+ * 所有账户共用预分配的两块 AtomicLongArray（开放寻址的账号表 + 桶数据），每个账户约 170 字节，
+ * 超过 24 小时无交易的槽位可被其他账户复用；表满时放行不统计。
+ * 先计入再校验，并发请求不会一起越过限额；记账事务未提交时撤销计入。
+ * 不在事务中记账（如内存记账引擎）时，由调用方在记账失败后调用返回的 {@link Permit#release()} 撤销。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bank.velocity.enabled", havingValue = "true")
+public class VelocityGuard {
+    private static final int MAX_PROBES = 16;
+    private static final long EMPTY = 0L;
+    private static final int TAG_MASK = 0xFFFF;
+    private static final long MAX_COUNT = 0xFFFFL;
+    private static final long MAX_CENTS = 0xFFFFFFFFL;
+
+    private final List<Window> windows;
+    private final int bucketsPerSlot;
+    private final int mask;
+    private final AtomicLongArray keys;
+    private final AtomicLongArray buckets;
+
+    public VelocityGuard(
+            @Value("${bank.velocity.capacity:1048576}") int capacity,
+            @Value("${bank.velocity.minute.max-count:10}") int minuteCount,
+            @Value("${bank.velocity.minute.max-amount:50000}") BigDecimal minuteAmount,
+            @Value("${bank.velocity.hour.max-count:60}") int hourCount,
+            @Value("${bank.velocity.hour.max-amount:200000}") BigDecimal hourAmount,
+            @Value("${bank.velocity.day.max-count:200}") int dayCount,
+            @Value("${bank.velocity.day.max-amount:1000000}") BigDecimal dayAmount) {
+        // 1 分钟：6 × 10 秒；1 小时：6 × 10 分钟；24 小时：8 × 3 小时
+        Window minute = new Window("1分钟", 10_000L, 6, 0, minuteCount, toCents(minuteAmount));
+        Window hour = new Window("1小时", 600_000L, 6, minute.end(), hourCount, toCents(hourAmount));
+        Window day = new Window("24小时", 10_800_000L, 8, hour.end(), dayCount, toCents(dayAmount));
+        this.windows = List.of(minute, hour, day);
+        this.bucketsPerSlot = day.end();
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.mask = size - 1;
+        this.keys = new AtomicLongArray(size);
+        this.buckets = new AtomicLongArray(size * bucketsPerSlot);
+    }
+
+    /**
+     * 计入一笔转出并校验限额，超限抛出 BusinessException
+     * 在事务中调用时，事务未提交则撤销本次计入；否则记账失败时须由调用方撤销
+     * @return 本次计入的撤销句柄，重复撤销无效
+     */
+    public Permit acquire(String accountId, BigDecimal amount) {
+        long key = toKey(accountId);
+        long now = System.currentTimeMillis();
+        int slot = key == EMPTY ? -1 : slotOf(key, now);
+        if (slot < 0) {
+            log.debug("频率限制表已满或账号无法编码，账户 {} 本次不统计", accountId);
+            return Permit.NONE;
+        }
+        long cents = toCents(amount);
+        for (Window w : windows) {
+            add(slot, w, now, 1, cents);
+        }
+        for (Window w : windows) {
+            long packed = total(slot, w, now);
+            if (count(packed) > w.maxCount() || sum(packed) > w.maxCents()) {
+                release(slot, now, cents);
+                throw new BusinessException("超出" + w.label() + "内交易限额");
+            }
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        Permit permit = () -> {
+            if (released.compareAndSet(false, true)) {
+                release(slot, now, cents);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        permit.release();
+                    }
+                }
+            });
+        }
+        return permit;
+    }
+
+    // 撤销计入（桶已滚动过期则无需撤销）
+    private void release(int slot, long at, long cents) {
+        for (Window w : windows) {
+            add(slot, w, at, -1, -cents);
+        }
+    }
+
+    // 一次计入的撤销句柄
+    @FunctionalInterface
+    public interface Permit {
+        Permit NONE = () -> { };
+
+        void release();
+    }
+
+    // ==== 开放寻址查找 / 占用槽位 ====
+    private int slotOf(long key, long now) {
+        int home = (int) mix(key) & mask;
+        int idle = -1;
+        long idleKey = EMPTY;
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int slot = (home + i) & mask;
+            long current = keys.get(slot);
+            if (current == key) {
+                return slot;
+            }
+            if (current == EMPTY) {
+                if (keys.compareAndSet(slot, EMPTY, key) || keys.get(slot) == key) {
+                    return slot;
+                }
+                continue;
+            }
+            if (idle < 0 && isIdle(slot, now)) {
+                idle = slot;
+                idleKey = current;
+            }
+        }
+        // 复用超过 24 小时无交易的槽位，旧桶按序号标记自然失效
+        if (idle >= 0 && (keys.compareAndSet(idle, idleKey, key) || keys.get(idle) == key)) {
+            return idle;
+        }
+        return -1;
+    }
+
+    private boolean isIdle(int slot, long now) {
+        Window day = windows.get(windows.size() - 1);
+        return count(total(slot, day, now)) == 0;
+    }
+
+    // ==== 时间桶 ====
+    private void add(int slot, Window w, long at, long countDelta, long centsDelta) {
+        long epoch = at / w.bucketMillis();
+        int index = slot * bucketsPerSlot + w.offset() + (int) (epoch % w.buckets());
+        long tag = epoch & TAG_MASK;
+        while (true) {
+            long current = buckets.get(index);
+            boolean sameBucket = (current >>> 48) == tag;
+            if (!sameBucket && countDelta < 0) {
+                return;
+            }
+            long count = clamp((sameBucket ? count(current) : 0) + countDelta, MAX_COUNT);
+            long cents = clamp((sameBucket ? sum(current) : 0) + centsDelta, MAX_CENTS);
+            long next = (tag << 48) | (count << 32) | cents;
+            if (buckets.compareAndSet(index, current, next)) {
+                return;
+            }
+        }
+    }
+
+    // 窗口内各桶合计，按桶的格式打包返回（笔数与金额均饱和）
+    private long total(int slot, Window w, long now) {
+        long epoch = now / w.bucketMillis();
+        int base = slot * bucketsPerSlot + w.offset();
+        long count = 0;
+        long cents = 0;
+        for (int i = 0; i < w.buckets(); i++) {
+            long packed = buckets.get(base + i);
+            long age = ((epoch & TAG_MASK) - (packed >>> 48)) & TAG_MASK;
+            if (packed != 0 && age < w.buckets()) {
+                count += count(packed);
+                cents += sum(packed);
+            }
+        }
+        return (clamp(count, MAX_COUNT) << 32) | clamp(cents, MAX_CENTS);
+    }
+
+    private static long count(long packed) {
+        return (packed >>> 32) & MAX_COUNT;
+    }
+
+    private static long sum(long packed) {
+        return packed & MAX_CENTS;
+    }
+
+    private static long clamp(long value, long max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return clamp(amount.movePointRight(2).setScale(0, RoundingMode.UP).longValue(), MAX_CENTS);
+    }
+
+    // 账号均为数字，直接作为键；0 保留为空槽
+    private static long toKey(String accountId) {
+        try {
+            return Long.parseLong(accountId);
+        } catch (NumberFormatException e) {
+            return EMPTY;
+        }
+    }
+
+    // 64 位混淆（MurmurHash3 fmix64），避免连号账户聚集
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    // 一个统计窗口：buckets 个长度为 bucketMillis 的桶，位于每个槽位的 [offset, offset + buckets)
+    private record Window(String label, long bucketMillis, int buckets, int offset, long maxCount, long maxCents) {
+        int end() {
+            return offset + buckets;
+        }
+    }
+}
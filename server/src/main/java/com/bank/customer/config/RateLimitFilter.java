@@ -0,0 +1,167 @@
+package com.bank.customer.config;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * 令牌桶限流（在安全过滤链中位于认证之后）
+ * 按“已认证用户 + 接口分组”各自一个令牌桶，未认证请求按来源 IP 计；
+ * 分组：资金变动（非 GET 写操作）/ 查询（GET）/ 管理（管理员接口），各组容量与补充速率可配置。
+ * 超限返回 429 与 Retry-After；长时间未使用的桶（此时已补满）定时清除。
+ * 默认关闭（bank.rate-limit.enabled=true 开启）：桶按实例计，多实例部署时实际上限为配置值乘以实例数，
+ * 网关或代理后未认证请求的来源 IP 可能是同一个，须按部署情况核定各组限额后再开启。
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    // 管理员接口，不论请求方法都归入管理组
+    private static final List<String> ADMIN_PATHS = List.of(
+            "/api/accounts/admin/**",
+            "/api/accounts/create/**",
+            "/api/accounts/*/freeze",
+            "/api/accounts/*/unfreeze",
+            "/api/accounts/*/restore",
+            "/api/accounts/*/hot-mode",
+            "/api/users",
+            "/api/statements/**",
+            "/api/interest/**",
+            "/api/reconciliation/**",
+            "/api/loans/approve/**",
+            "/api/loans/*/approve",
+            "/api/loans/auto-debit/**",
+            "/actuator/**");
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final boolean enabled;
+    private final long idleNanos;
+    private final Map<Group, Limit> limits;
+
+    // “用户|分组” → 令牌桶
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public RateLimitFilter(
+            @Value("${bank.rate-limit.enabled:false}") boolean enabled,
+            @Value("${bank.rate-limit.idle-evict-ms:600000}") long idleEvictMillis,
+            @Value("${bank.rate-limit.money.capacity:20}") int moneyCapacity,
+            @Value("${bank.rate-limit.money.refill-per-second:10}") double moneyRate,
+            @Value("${bank.rate-limit.read.capacity:50}") int readCapacity,
+            @Value("${bank.rate-limit.read.refill-per-second:20}") double readRate,
+            @Value("${bank.rate-limit.admin.capacity:10}") int adminCapacity,
+            @Value("${bank.rate-limit.admin.refill-per-second:2}") double adminRate) {
+        this.enabled = enabled;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleEvictMillis);
+        this.limits = Map.of(
+                Group.MONEY, new Limit(moneyCapacity, moneyRate),
+                Group.READ, new Limit(readCapacity, readRate),
+                Group.ADMIN, new Limit(adminCapacity, adminRate));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || HttpMethod.OPTIONS.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Group group = groupOf(request);
+        Limit limit = limits.get(group);
+        Bucket bucket = buckets.computeIfAbsent(clientOf(request) + "|" + group, k -> new Bucket(limit));
+        long waitNanos = bucket.tryConsume();
+        if (waitNanos == 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long retryAfter = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", Long.toString(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8");
+        response.getWriter().write(
+                "{\"error\":\"请求过于频繁\",\"message\":\"请在 " + retryAfter + " 秒后重试\"}");
+    }
+
+    // ==== 定时清除空闲的桶 ====
+    @Scheduled(fixedDelayString = "${bank.rate-limit.idle-evict-ms:600000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.idleSince(now) > idleNanos);
+    }
+
+    private Group groupOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String pattern : ADMIN_PATHS) {
+            if (pathMatcher.match(pattern, path)) {
+                return Group.ADMIN;
+            }
+        }
+        if (HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())) {
+            return Group.READ;
+        }
+        return Group.MONEY;
+    }
+
+    private static String clientOf(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+            return "user:" + auth.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private enum Group {
+        MONEY, READ, ADMIN
+    }
+
+    private record Limit(int capacity, double refillPerSecond) {
+    }
+
+    // 令牌桶：按流逝时间补充令牌，上限为容量
+    private static final class Bucket {
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long lastRefill;
+
+        Bucket(Limit limit) {
+            this.capacity = limit.capacity();
+            this.tokensPerNano = limit.refillPerSecond() / TimeUnit.SECONDS.toNanos(1);
+            this.tokens = limit.capacity();
+            this.lastRefill = System.nanoTime();
+        }
+
+        // 取一个令牌；成功返回 0，否则返回还需等待的纳秒数
+        synchronized long tryConsume() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+
+        synchronized long idleSince(long now) {
+            return now - lastRefill;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -20,6 +21,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -37,6 +39,8 @@ import org.springframework.security.config.annotation.authentication.configurati
 @EnableWebSecurity
 @RequiredArgsConstructor
 public class SecurityConfig {
+        private final RateLimitFilter rateLimitFilter;
+
         @Bean
         public PasswordEncoder passwordEncoder() {
                 return new BCryptPasswordEncoder();
@@ -56,9 +60,10 @@ public class SecurityConfig {
                 // 允许的HTTP方法（添加OPTIONS）
                 config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
                 // 允许的请求头（保持与前端一致）
-                config.setAllowedHeaders(List.of("Authorization", "Cache-Control", "Content-Type", "X-Requested-With"));
+                config.setAllowedHeaders(List.of("Authorization", "Cache-Control", "Content-Type", "X-Requested-With",
+                                "Idempotency-Key"));
                 // 暴露的响应头（保持原样）
-                config.setExposedHeaders(List.of("Authorization"));
+                config.setExposedHeaders(List.of("Authorization", "Retry-After"));
                 // 启用凭据
                 config.setAllowCredentials(true);
                 // 预检请求缓存时间（单位：秒）
@@ -121,6 +126,9 @@ public class SecurityConfig {
                                                 .requestMatchers(HttpMethod.GET, "/api/accounts/my-accounts")
                                                 .hasRole("USER")
                                                 .requestMatchers("/api/accounts/admin/**").hasRole("ADMIN")
+                                                .requestMatchers("/api/accounts/*/hot-mode").hasRole("ADMIN")
+                                                .requestMatchers(HttpMethod.POST, "/api/accounts/create/batch")
+                                                .hasRole("ADMIN")
 
                                                 // 贷款接口
                                                 .requestMatchers(HttpMethod.POST, "/api/loans/apply").hasRole("USER")
@@ -128,22 +136,39 @@ public class SecurityConfig {
 
                                                 // 交易记录
                                                 .requestMatchers(HttpMethod.GET,
-                                                                "/api/transactions/{accountId}/history")
+                                                                "/api/transactions/{accountId}/history",
+                                                                "/api/transactions/{accountId}/history/page",
+                                                                "/api/transactions/{accountId}/history/stream")
                                                 .hasRole("USER")
                                                 .requestMatchers("/api/transactions/**").hasRole("ADMIN")
 
                                                 // 管理员专属接口
                                                 .requestMatchers("/api/users").hasRole("ADMIN")
+                                                .requestMatchers("/api/statements/**").hasRole("ADMIN")
+                                                .requestMatchers("/api/interest/**").hasRole("ADMIN")
+                                                .requestMatchers("/api/reconciliation/**").hasRole("ADMIN")
                                                 .requestMatchers("/api/loans/approve/**").hasRole("ADMIN")
+                                                .requestMatchers("/api/loans/auto-debit/**").hasRole("ADMIN")
+                                                .requestMatchers("/actuator/metrics/**").hasRole("ADMIN")
                                                 .requestMatchers(HttpMethod.PUT, "/api/users/change-password")
                                                 .hasRole("ADMIN")
 
                                                 .requestMatchers("/error").permitAll()
                                                 .anyRequest().authenticated())
                                 .httpBasic(Customizer.withDefaults());
+                // 限流按已认证用户计，放在 Basic 认证之后
+                http.addFilterAfter(rateLimitFilter, BasicAuthenticationFilter.class);
                 return http.build();
         }
 
+        // 限流过滤器只在安全过滤链中执行，不再由容器单独注册
+        @Bean
+        public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration() {
+                FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(rateLimitFilter);
+                registration.setEnabled(false);
+                return registration;
+        }
+
         @Bean
         public UserDetailsService userDetailsService(UserRepository userRepository,
                         UserRoleRepository userRoleRepository) {
@@ -1,13 +1,26 @@
 package com.bank.customer.controller;
 
+import com.bank.customer.dto.AccountOpenRequestDTO;
+import com.bank.customer.dto.AccountSummaryDTO;
 import com.bank.customer.entity.Account;
 import com.bank.customer.entity.AccountStatus;
 import com.bank.customer.service.AccountService;
+import com.bank.customer.service.BalanceHistoryService;
+import com.bank.customer.service.BulkAccountService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -15,6 +28,9 @@ import java.util.List;
 @RequiredArgsConstructor
 public class AccountController {
     private final AccountService accountService;
+    private final BalanceHistoryService balanceHistoryService;
+    private final BulkAccountService bulkAccountService;
+    private final ObjectMapper objectMapper;
 
     // 管理员开户
     @PostMapping("/create")
@@ -24,12 +40,36 @@ public class AccountController {
         return accountService.createAccount(userId, accountType);
     }
 
+    // 管理员批量开户：每块提交后即以 NDJSON 逐行返回结果（按 index 与请求对应）
+    @PostMapping(value = "/create/batch", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody createAccounts(@RequestBody List<AccountOpenRequestDTO> requests) {
+        ObjectWriter writer = objectMapper.writer();
+        return out -> bulkAccountService.openAll(requests, result -> {
+            try {
+                out.write(writer.writeValueAsBytes(result));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     // 用户查看自己的账户
     @GetMapping("/my-accounts")
-    public List<Account> getMyAccounts(@RequestParam Integer userId) {
+    public List<AccountSummaryDTO> getMyAccounts(@RequestParam Integer userId) {
         return accountService.getUserAccounts(userId);
     }
 
+    // 查询指定日期日终余额
+    @GetMapping("/{accountId}/balance-as-of")
+    public BigDecimal getBalanceAsOf(
+            @PathVariable String accountId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return balanceHistoryService.getBalanceAsOf(accountId, date);
+    }
+
     // ==== 客户注销或管理员删除（合并接口） ====
     @DeleteMapping("/{accountId}")
     public void closeAccount(
@@ -55,6 +95,22 @@ public class AccountController {
         accountService.unfreezeAccount(accountId, operatorId);
     }
 
+    // ==== 管理员开启 / 关闭热点分槽，返回账户总余额 ====
+    @PutMapping("/{accountId}/hot-mode")
+    public BigDecimal enableHotMode(
+            @PathVariable String accountId,
+            @RequestParam int slots,
+            @RequestParam Integer operatorId) {
+        return accountService.enableHotMode(accountId, slots, operatorId);
+    }
+
+    @DeleteMapping("/{accountId}/hot-mode")
+    public BigDecimal disableHotMode(
+            @PathVariable String accountId,
+            @RequestParam Integer operatorId) {
+        return accountService.disableHotMode(accountId, operatorId);
+    }
+
     @PutMapping("/{accountId}/restore")
     public Account restoreAccount(@PathVariable String accountId, @RequestParam Integer operatorId) {
         return accountService.restoreAccount(accountId, operatorId);
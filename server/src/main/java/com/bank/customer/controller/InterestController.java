@@ -0,0 +1,29 @@
+package com.bank.customer.controller;
+
+import java.time.LocalDate;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bank.customer.dto.InterestAccrualResultDTO;
+import com.bank.customer.job.InterestAccrualJob;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/interest")
+@RequiredArgsConstructor
+public class InterestController {
+    private final InterestAccrualJob interestAccrualJob;
+
+    // ==== 为指定日期计息（或续跑），已完成的日期直接返回（管理员接口） ====
+    @PostMapping("/accrue")
+    public InterestAccrualResultDTO accrue(
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ) {
+        return interestAccrualJob.accrue(date);
+    }
+}
@@ -0,0 +1,29 @@
+package com.bank.customer.controller;
+
+import java.time.LocalDate;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bank.customer.dto.LoanAutoDebitResultDTO;
+import com.bank.customer.job.LoanAutoDebitJob;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/loans/auto-debit")
+@RequiredArgsConstructor
+public class LoanAutoDebitController {
+    private final LoanAutoDebitJob loanAutoDebitJob;
+
+    // ==== 手动执行贷款自动扣款，扣指定日期及之前到期的期次（管理员接口） ====
+    @PostMapping("/run")
+    public LoanAutoDebitResultDTO run(
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ) {
+        return loanAutoDebitJob.debit(date);
+    }
+}
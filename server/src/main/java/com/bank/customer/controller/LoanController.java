@@ -15,7 +15,6 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.bank.customer.dto.LoanRepaymentDTO;
 import com.bank.customer.entity.LoanApplication;
-import com.bank.customer.entity.LoanRepayment;
 import com.bank.customer.service.LoanService;
 
 import lombok.RequiredArgsConstructor;
@@ -49,7 +48,7 @@ public class LoanController {
 
     // ==== 还款 ====
     @PostMapping("/{loanId}/repay")
-    public LoanRepayment repay(
+    public LoanRepaymentDTO repay(
         @PathVariable Long loanId,
         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate repaymentDate
     ) {
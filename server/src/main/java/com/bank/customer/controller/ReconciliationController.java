@@ -0,0 +1,23 @@
+package com.bank.customer.controller;
+
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bank.customer.dto.ReconciliationResultDTO;
+import com.bank.customer.job.ReconciliationJob;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/reconciliation")
+@RequiredArgsConstructor
+public class ReconciliationController {
+    private final ReconciliationJob reconciliationJob;
+
+    // ==== 手动执行账务核对（管理员接口） ====
+    @PostMapping("/run")
+    public ReconciliationResultDTO run() {
+        return reconciliationJob.reconcile();
+    }
+}
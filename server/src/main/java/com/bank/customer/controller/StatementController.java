@@ -0,0 +1,29 @@
+package com.bank.customer.controller;
+
+import java.time.YearMonth;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bank.customer.dto.StatementRunResultDTO;
+import com.bank.customer.job.StatementJob;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/statements")
+@RequiredArgsConstructor
+public class StatementController {
+    private final StatementJob statementJob;
+
+    // ==== 生成（或续跑）指定月份对账单（管理员接口） ====
+    @PostMapping("/generate")
+    public StatementRunResultDTO generate(
+        @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth month
+    ) {
+        return statementJob.generate(month);
+    }
+}
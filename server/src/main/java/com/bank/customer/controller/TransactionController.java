@@ -1,46 +1,90 @@
 // server/src/main/java/com/bank/customer/controller/TransactionController.java
 package com.bank.customer.controller;
 
+import com.bank.customer.component.IdempotencyStore;
+import com.bank.customer.dto.TransactionPageDTO;
+import com.bank.customer.dto.TransferRequestDTO;
+import com.bank.customer.dto.TransferResultDTO;
 import com.bank.customer.entity.Transaction;
+import com.bank.customer.service.BatchTransferService;
 import com.bank.customer.service.TransactionService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import jakarta.validation.constraints.DecimalMin;
 import lombok.RequiredArgsConstructor;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.security.Principal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/transactions")
 @RequiredArgsConstructor
 public class TransactionController {
     private final TransactionService transactionService;
+    private final BatchTransferService batchTransferService;
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/deposit")
     public Transaction deposit(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestParam String accountId,
-            @RequestParam Double amount) {
-        return transactionService.deposit(accountId, amount);
+            @RequestParam Double amount,
+            Principal principal) {
+        return idempotencyStore.execute(idempotencyKey, nameOf(principal), "deposit", List.of(accountId, amount),
+                () -> transactionService.deposit(accountId, amount));
     }
 
     // 取款接口
     @PostMapping("/withdraw")
     public Transaction withdraw(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestParam String accountId,
-            @RequestParam @DecimalMin("0.01") BigDecimal amount) {
-        return transactionService.withdraw(accountId, amount);
+            @RequestParam @DecimalMin("0.01") BigDecimal amount,
+            Principal principal) {
+        return idempotencyStore.execute(idempotencyKey, nameOf(principal), "withdraw", List.of(accountId, amount),
+                () -> transactionService.withdraw(accountId, amount));
     }
 
     @PostMapping("/transfer")
-    public void transfer(
+    public Transaction transfer(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestParam String fromAccountId,
             @RequestParam String toAccountId,
-            @RequestParam Double amount) {
-        transactionService.transfer(fromAccountId, toAccountId, amount);
+            @RequestParam Double amount,
+            Principal principal) {
+        return idempotencyStore.execute(idempotencyKey, nameOf(principal), "transfer",
+                List.of(fromAccountId, toAccountId, amount),
+                () -> transactionService.transfer(fromAccountId, toAccountId, amount));
+    }
+
+    // 批量转账（JSON 数组）
+    @PostMapping(value = "/transfer/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<TransferResultDTO> batchTransfer(@RequestBody List<TransferRequestDTO> requests) {
+        return batchTransferService.transferAll(requests);
+    }
+
+    // 批量转账（NDJSON，每行一笔）：边读边按块执行，不把整个请求体读入内存
+    @PostMapping(value = "/transfer/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public List<TransferResultDTO> batchTransferNdjson(InputStream body) throws IOException {
+        try (MappingIterator<TransferRequestDTO> it = objectMapper
+                .readerFor(TransferRequestDTO.class)
+                .readValues(body)) {
+            return batchTransferService.transferAll(it);
+        }
     }
 
     @GetMapping("/{accountId}/history")
@@ -50,4 +94,37 @@ public class TransactionController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
         return transactionService.getTransactionHistory(accountId, startDate, endDate);
     }
+
+    // 游标分页查询（下一页传入上一页返回的 nextAfterTime/nextAfterId）
+    @GetMapping("/{accountId}/history/page")
+    public TransactionPageDTO getTransactionPage(
+            @PathVariable String accountId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterTime,
+            @RequestParam(required = false) Integer afterId,
+            @RequestParam(defaultValue = "100") int size) {
+        return transactionService.getTransactionPage(accountId, startDate, endDate, afterTime, afterId, size);
+    }
+
+    // 流式导出（NDJSON，每行一条交易记录）
+    @GetMapping(value = "/{accountId}/history/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamTransactionHistory(
+            @PathVariable String accountId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        ObjectWriter writer = objectMapper.writer();
+        return out -> transactionService.streamTransactionHistory(accountId, startDate, endDate, t -> {
+            try {
+                out.write(writer.writeValueAsBytes(t));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static String nameOf(Principal principal) {
+        return principal == null ? null : principal.getName();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.bank.customer.dto;
+
+// 批量开户请求项
+public record AccountOpenRequestDTO(
+    Integer userId,
+    String accountType  // savings / checking
+) {
+}
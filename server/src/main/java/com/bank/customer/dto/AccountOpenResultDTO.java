@@ -0,0 +1,39 @@
+package com.bank.customer.dto;
+
+import java.time.LocalDateTime;
+
+// 批量开户结果项（与请求按 index 对应）
+public record AccountOpenResultDTO(
+    int index,
+    Integer userId,
+    String accountType,
+    String accountId,
+    LocalDateTime createdAt,
+    String status,  // SUCCESS / FAILED
+    String message
+) {
+    public static AccountOpenResultDTO success(
+            int index, AccountOpenRequestDTO request, String accountId, LocalDateTime createdAt) {
+        return new AccountOpenResultDTO(
+            index,
+            request.userId(),
+            request.accountType(),
+            accountId,
+            createdAt,
+            "SUCCESS",
+            null
+        );
+    }
+
+    public static AccountOpenResultDTO failed(int index, AccountOpenRequestDTO request, String message) {
+        return new AccountOpenResultDTO(
+            index,
+            request.userId(),
+            request.accountType(),
+            null,
+            null,
+            "FAILED",
+            message
+        );
+    }
+}
@@ -0,0 +1,14 @@
+package com.bank.customer.dto;
+
+import java.math.BigDecimal;
+
+// 用户账户概览（对应 v_user_account_summary，余额含热点分槽）
+public record AccountSummaryDTO(
+    Integer userId,
+    String fullName,
+    String accountId,
+    String accountType,
+    BigDecimal balance,
+    String status
+) {
+}
@@ -0,0 +1,13 @@
+package com.bank.customer.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// 计息任务执行结果
+public record InterestAccrualResultDTO(
+    LocalDate accrualDate,
+    long chunks,            // 本次处理的块数（不含之前已完成的）
+    long accounts,          // 本次入账的账户数
+    BigDecimal totalInterest
+) {
+}
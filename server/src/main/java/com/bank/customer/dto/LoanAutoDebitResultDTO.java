@@ -0,0 +1,17 @@
+package com.bank.customer.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// 贷款自动扣款任务执行结果
+public record LoanAutoDebitResultDTO(
+    LocalDate dueDate,
+    long chunks,            // 处理的贷款块数
+    long installments,      // 到期的期次数
+    long paid,              // 扣款成功的期次数
+    long failed,            // 扣款失败的期次数（明细见报告）
+    BigDecimal totalDebited,
+    long elapsedMillis,
+    String reportFile
+) {
+}
@@ -0,0 +1,12 @@
+package com.bank.customer.dto;
+
+// 账务核对任务执行结果
+public record ReconciliationResultDTO(
+    long chunks,            // 处理的账户块数
+    long accounts,          // 核对的账户数（不含已注销）
+    long transactionRows,   // 扫描的流水行数（转账计两行）
+    long discrepancies,     // 复核后仍不一致的账户数
+    long elapsedMillis,
+    String reportFile
+) {
+}
@@ -0,0 +1,12 @@
+package com.bank.customer.dto;
+
+import java.time.YearMonth;
+
+// 对账单任务执行结果
+public record StatementRunResultDTO(
+    YearMonth month,
+    long chunks,            // 本次处理的块数（不含之前已完成的）
+    long accounts,          // 本次生成的账户对账单数
+    String outputDir
+) {
+}
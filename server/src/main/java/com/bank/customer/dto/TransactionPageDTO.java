@@ -0,0 +1,21 @@
+package com.bank.customer.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.bank.customer.entity.Transaction;
+
+// 交易记录游标分页结果，nextAfterTime/nextAfterId 为空表示没有下一页
+public record TransactionPageDTO(
+    List<Transaction> items,
+    LocalDateTime nextAfterTime,
+    Integer nextAfterId
+) {
+    public static TransactionPageDTO of(List<Transaction> items, int size) {
+        if (items.size() < size) {
+            return new TransactionPageDTO(items, null, null);
+        }
+        Transaction last = items.get(items.size() - 1);
+        return new TransactionPageDTO(items, last.getTransactionTime(), last.getTransactionId());
+    }
+}
@@ -0,0 +1,11 @@
+package com.bank.customer.dto;
+
+import java.math.BigDecimal;
+
+// 批量转账请求项
+public record TransferRequestDTO(
+    String fromAccountId,
+    String toAccountId,
+    BigDecimal amount
+) {
+}
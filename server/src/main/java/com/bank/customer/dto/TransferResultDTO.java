@@ -0,0 +1,45 @@
+package com.bank.customer.dto;
+
+import java.math.BigDecimal;
+
+// 批量转账结果项（与请求按 index 对应）
+public record TransferResultDTO(
+    int index,
+    String fromAccountId,
+    String toAccountId,
+    BigDecimal amount,
+    String status,  // SUCCESS / FAILED
+    String message
+) {
+    public static TransferResultDTO success(int index, TransferRequestDTO request) {
+        return new TransferResultDTO(
+            index,
+            request.fromAccountId(),
+            request.toAccountId(),
+            request.amount(),
+            "SUCCESS",
+            null
+        );
+    }
+
+    // 请求无法解析时没有对应的请求内容
+    public static TransferResultDTO unreadable(int index, String message) {
+        return new TransferResultDTO(index, null, null, null, "FAILED", message);
+    }
+
+    // 分块执行时把块内序号换算为整批序号
+    public TransferResultDTO withIndex(int index) {
+        return new TransferResultDTO(index, fromAccountId, toAccountId, amount, status, message);
+    }
+
+    public static TransferResultDTO failed(int index, TransferRequestDTO request, String message) {
+        return new TransferResultDTO(
+            index,
+            request.fromAccountId(),
+            request.toAccountId(),
+            request.amount(),
+            "FAILED",
+            message
+        );
+    }
+}
@@ -33,4 +33,7 @@ public class Account {
 
     @Column(name = "closed_at")
     private LocalDateTime closedAt; // 确保字段存在
+
+    @Column(name = "hot_slots", nullable = false)
+    private int hotSlots = 0; // 热点分槽数，0 为普通账户；分槽账户余额 = balance + 各槽余额
 }
\ No newline at end of file
@@ -13,8 +13,10 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor // 添加全参构造函数注解
 public class AuditLog {
+    // 序列按 50 个一段预取（须与序列步长一致），插入不再逐条取回自增值
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_log_seq")
+    @SequenceGenerator(name = "audit_log_seq", sequenceName = "seq_audit_log", allocationSize = 50)
     private Long logId;
 
     private String operationType;
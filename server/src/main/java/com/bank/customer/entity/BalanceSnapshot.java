@@ -0,0 +1,32 @@
+package com.bank.customer.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+@Entity
+@Table(name = "account_balance_snapshot")
+@IdClass(BalanceSnapshotId.class)
+@Data
+public class BalanceSnapshot {
+    @Id
+    @Column(name = "account_id")
+    private String accountId;
+
+    @Id
+    @Column(name = "snapshot_date")
+    private LocalDate snapshotDate;           // 快照日期（当日日终）
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal closingBalance;        // 日终余额
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,34 @@
+package com.bank.customer.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+public class BalanceSnapshotId implements Serializable {
+    private String accountId;
+    private LocalDate snapshotDate;
+
+    public BalanceSnapshotId() {
+    }
+
+    public BalanceSnapshotId(String accountId, LocalDate snapshotDate) {
+        this.accountId = accountId;
+        this.snapshotDate = snapshotDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        BalanceSnapshotId that = (BalanceSnapshotId) o;
+        return Objects.equals(accountId, that.accountId) &&
+                Objects.equals(snapshotDate, that.snapshotDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(accountId, snapshotDate);
+    }
+}
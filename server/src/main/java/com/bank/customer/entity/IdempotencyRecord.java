@@ -0,0 +1,40 @@
+package com.bank.customer.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "idempotency_record")
+@IdClass(IdempotencyRecordId.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+    @Id
+    @Column(name = "principal")
+    private String principal;                 // 发起请求的登录用户
+
+    @Id
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private String endpoint;                  // deposit/withdraw/transfer
+
+    @Column(nullable = false, columnDefinition = "char(64)")
+    private String requestHash;               // 操作与参数的 SHA-256 摘要
+
+    @Column(nullable = false, columnDefinition = "nvarchar(max)")
+    private String responseBody;              // 首次执行返回的 Transaction（JSON）
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,41 @@
+package com.bank.customer.entity;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+public class IdempotencyRecordId implements Serializable {
+    private String principal;
+    private String idempotencyKey;
+
+    public IdempotencyRecordId() {
+    }
+
+    public IdempotencyRecordId(String principal, String idempotencyKey) {
+        this.principal = principal;
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getPrincipal() {
+        return principal;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        IdempotencyRecordId that = (IdempotencyRecordId) o;
+        return Objects.equals(principal, that.principal) &&
+                Objects.equals(idempotencyKey, that.idempotencyKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(principal, idempotencyKey);
+    }
+}
@@ -60,6 +60,19 @@ public class LoanApplication {
     @Column(nullable = false)
     private LoanStatus status = LoanStatus.PENDING; // 贷款状态
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "schedule_mode", nullable = false)
+    private ScheduleMode scheduleMode = ScheduleMode.EAGER; // 还款计划模式
+
+    @Column(name = "next_due_date")
+    private LocalDate nextDueDate;            // 最早一期未还的还款日（还清后为空）
+
+    @Column(name = "paid_count", nullable = false)
+    private Integer paidCount = 0;            // 已还期数
+
+    @Column(name = "pending_count", nullable = false)
+    private Integer pendingCount = 0;         // 待还期数（审批时为期限，还清为 0）
+
     // 贷款状态枚举
     public enum LoanStatus {
         PENDING,    // 与数据库定义中的'pending'不一致
@@ -68,4 +81,10 @@ public class LoanApplication {
         DISBURSED,  // 新增状态对应数据库中的'disbursed'
         CLOSED      // 需要数据库添加该状态到CHECK约束
     }
+
+    // 还款计划模式
+    public enum ScheduleMode {
+        EAGER,      // 审批时写入全部期次
+        LAZY        // 只保存已还或调整过的期次，其余由 LoanCalculator 按需计算
+    }
 }
\ No newline at end of file
@@ -14,6 +14,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.Data;
 
@@ -21,8 +22,10 @@ import lombok.Data;
 @Table(name = "loan_repayment")
 @Data
 public class LoanRepayment {
+    // 序列按 50 个一段预取（须与序列步长一致），整份还款计划可批量插入
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_repayment_seq")
+    @SequenceGenerator(name = "loan_repayment_seq", sequenceName = "seq_loan_repayment", allocationSize = 50)
     private Long repaymentId;
     
     // 添加JSON序列化过滤注解
@@ -29,7 +29,7 @@ public class Transaction {
     private BigDecimal amount; // 改为 BigDecimal
 
     @Column(nullable = false)
-    private String transactionType; // deposit/withdraw/transfer
+    private String transactionType; // deposit/withdraw/transfer/interest
 
     @Column(nullable = false)
     private LocalDateTime transactionTime = LocalDateTime.now();
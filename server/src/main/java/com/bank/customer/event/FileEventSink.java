@@ -0,0 +1,45 @@
+package com.bank.customer.event;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// 文件投递：每个事件追加为一行 JSON（NDJSON），可替代消息队列做本地联调
+@Component
+@ConditionalOnProperty(name = "bank.outbox.sink.file.enabled", havingValue = "true")
+public class FileEventSink implements LedgerEventSink {
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    public FileEventSink(
+            ObjectMapper objectMapper,
+            @Value("${bank.outbox.sink.file.path:ledger-events.ndjson}") String path) {
+        this.objectMapper = objectMapper;
+        this.file = Paths.get(path);
+    }
+
+    @Override
+    public synchronized void publish(List<LedgerEvent> events) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (LedgerEvent event : events) {
+                writer.write(objectMapper.writeValueAsString(event));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
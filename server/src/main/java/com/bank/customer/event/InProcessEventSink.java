@@ -0,0 +1,22 @@
+package com.bank.customer.event;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+// 进程内投递：以 Spring 应用事件发布，供 @EventListener(LedgerEvent.class) 订阅
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "bank.outbox.sink.in-process.enabled", havingValue = "true", matchIfMissing = true)
+public class InProcessEventSink implements LedgerEventSink {
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void publish(List<LedgerEvent> events) {
+        events.forEach(eventPublisher::publishEvent);
+    }
+}
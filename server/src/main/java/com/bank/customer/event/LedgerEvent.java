@@ -0,0 +1,14 @@
+package com.bank.customer.event;
+
+import java.time.LocalDateTime;
+
+import com.bank.customer.entity.Transaction;
+
+// 对外发布的记账事件
+public record LedgerEvent(
+    Long eventId,
+    String eventType,       // deposit/withdraw/transfer/interest
+    Transaction transaction,
+    LocalDateTime createdAt
+) {
+}
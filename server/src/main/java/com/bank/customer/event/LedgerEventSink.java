@@ -0,0 +1,11 @@
+package com.bank.customer.event;
+
+import java.util.List;
+
+/**
+ * 记账事件投递目标
+ * 中继按 event_id 顺序批量调用；抛出异常则本批不标记为已投递，下次重投（至少一次语义）。
+ */
+public interface LedgerEventSink {
+    void publish(List<LedgerEvent> events);
+}
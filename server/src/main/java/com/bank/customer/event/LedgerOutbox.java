@@ -0,0 +1,63 @@
+package com.bank.customer.event;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.bank.customer.entity.OutboxEvent;
+import com.bank.customer.entity.Transaction;
+import com.bank.customer.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 发件箱写入
+ * 必须在账务变更所在的事务中调用，保证流水与事件同时提交或同时回滚。
+ */
+@Component
+@RequiredArgsConstructor
+public class LedgerOutbox {
+    private static final String INSERT_SQL =
+            "INSERT INTO ledger_outbox (event_type, payload, created_at) VALUES (?, ?, ?)";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    // 记录单条事件（JPA，加入当前事务）
+    public void record(Transaction transaction) {
+        outboxEventRepository.save(new OutboxEvent(
+                null,
+                transaction.getTransactionType(),
+                toJson(transaction),
+                LocalDateTime.now(),
+                null));
+    }
+
+    // 批量记录事件（JDBC 批量插入，加入当前事务）；流水须已写入并带有 transactionId
+    public void recordAll(List<Transaction> transactions) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            if (transaction.getTransactionId() == null) {
+                throw new IllegalStateException("记账事件缺少流水号，流水须经 TransactionBatchWriter 写入");
+            }
+            args.add(new Object[] { transaction.getTransactionType(), toJson(transaction), now });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, args);
+    }
+
+    private String toJson(Transaction transaction) {
+        try {
+            return objectMapper.writeValueAsString(transaction);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("记账事件序列化失败", e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.bank.customer.event;
+
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.bank.customer.entity.Transaction;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 发件箱本地扇出
+ * {@link OutboxRelay} 的领取是跨实例互斥的，每个事件只交给一个实例；而读模型、缓存在每个实例上都有一份。
+ * 本组件在每个实例上各自按 event_id 顺序读取发件箱（不领取、不标记），把全部事件交给本实例的
+ * {@link LocalLedgerEventSink}。启动时从当前最大 event_id 开始（读模型随后从数据库全量构建）。
+ * event_id 在插入时分配、提交顺序不保证，较小的 ID 可能晚于较大的 ID 可见：
+ * 读取进度只推进到连续已投递的位置，其后的空洞等待 gap-wait-ms，仍未出现视为回滚跳号。
+ * 读取加 READPAST，不等待未提交的插入，跳过的行留作空洞下次再读。
+ */
+@Slf4j
+@Component
+public class LocalEventFanout {
+    private static final String FETCH_SQL =
+            "SELECT TOP (?) event_id, event_type, payload, created_at FROM ledger_outbox WITH (READPAST) " +
+            "WHERE event_id > ? ORDER BY event_id";
+    private static final String MAX_EVENT_ID_SQL =
+            "SELECT COALESCE(MAX(event_id), 0) FROM ledger_outbox";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final List<LocalLedgerEventSink> sinks;
+    private final int batchSize;
+    private final long gapWaitMillis;
+
+    // 不大于 cursor 的事件均已投递或已判定为跳号；仅由定时线程访问
+    private long cursor;
+    // cursor 之后已投递的事件 → 首次投递时间
+    private final NavigableMap<Long, Long> deliveredAhead = new TreeMap<>();
+
+    public LocalEventFanout(
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            List<LocalLedgerEventSink> sinks,
+            @Value("${bank.outbox.batch-size:500}") int batchSize,
+            @Value("${bank.outbox.local.gap-wait-ms:5000}") long gapWaitMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.sinks = sinks;
+        this.batchSize = batchSize;
+        this.gapWaitMillis = gapWaitMillis;
+    }
+
+    @PostConstruct
+    public void init() {
+        cursor = jdbcTemplate.queryForObject(MAX_EVENT_ID_SQL, Long.class);
+    }
+
+    // ==== 定时拉取：从 cursor 起读到末尾，投递尚未投递的事件 ====
+    @Scheduled(fixedDelayString = "${bank.outbox.local.poll-interval-ms:200}")
+    public void poll() {
+        try {
+            long from = cursor;
+            List<LedgerEvent> events;
+            do {
+                events = fetch(from);
+                List<LedgerEvent> fresh = events.stream()
+                        .filter(event -> event.eventId() > cursor && !deliveredAhead.containsKey(event.eventId()))
+                        .toList();
+                if (!fresh.isEmpty()) {
+                    for (LocalLedgerEventSink sink : sinks) {
+                        sink.publish(fresh);
+                    }
+                    long now = System.currentTimeMillis();
+                    fresh.forEach(event -> deliveredAhead.put(event.eventId(), now));
+                }
+                if (!events.isEmpty()) {
+                    from = events.get(events.size() - 1).eventId();
+                }
+            } while (events.size() == batchSize);
+            advance();
+        } catch (RuntimeException e) {
+            log.error("发件箱本地扇出失败，待下次重试", e);
+        }
+    }
+
+    // 推进 cursor：连续的已投递事件直接越过；空洞之后的事件已等待超过 gap-wait-ms 时放弃该空洞
+    private void advance() {
+        long now = System.currentTimeMillis();
+        while (!deliveredAhead.isEmpty()) {
+            var first = deliveredAhead.firstEntry();
+            if (first.getKey() != cursor + 1 && now - first.getValue() < gapWaitMillis) {
+                break;
+            }
+            cursor = first.getKey();
+            deliveredAhead.pollFirstEntry();
+        }
+    }
+
+    private List<LedgerEvent> fetch(long after) {
+        return jdbcTemplate.query(FETCH_SQL,
+                (rs, rowNum) -> new LedgerEvent(
+                        rs.getLong("event_id"),
+                        rs.getString("event_type"),
+                        fromJson(rs.getString("payload")),
+                        rs.getTimestamp("created_at").toLocalDateTime()),
+                batchSize, after);
+    }
+
+    private Transaction fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, Transaction.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("记账事件反序列化失败", e);
+        }
+    }
+}
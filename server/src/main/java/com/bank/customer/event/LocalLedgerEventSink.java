@@ -0,0 +1,12 @@
+package com.bank.customer.event;
+
+import java.util.List;
+
+/**
+ * 本实例内存状态（读模型、缓存）的记账事件投递目标
+ * 与 {@link LedgerEventSink} 不同，每个实例都会收到全部事件，由 {@link LocalEventFanout} 各自拉取投递。
+ * 同一事件可能重复投递，实现须幂等（如按账户回查数据库当前值）。
+ */
+public interface LocalLedgerEventSink {
+    void publish(List<LedgerEvent> events);
+}
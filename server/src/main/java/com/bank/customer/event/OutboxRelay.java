@@ -0,0 +1,115 @@
+package com.bank.customer.event;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bank.customer.entity.Transaction;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 发件箱中继
+ * 定时按 event_id 顺序批量拉取未投递事件，依次交给所有投递目标，成功后标记已投递。
+ * 拉取时加 UPDLOCK/READPAST，多实例部署时各实例不会重复领取同一批事件，
+ * 因此投递目标只适合对外发布（进程内订阅方、文件、消息队列）；
+ * 每个实例各自维护的读模型与缓存实现 {@link LocalLedgerEventSink}，由 {@link LocalEventFanout} 投递。
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+    private static final String FETCH_SQL =
+            "SELECT TOP (?) event_id, event_type, payload, created_at FROM ledger_outbox WITH (UPDLOCK, READPAST) " +
+            "WHERE published_at IS NULL ORDER BY event_id";
+    private static final String MARK_PUBLISHED_SQL =
+            "UPDATE ledger_outbox SET published_at = :now WHERE event_id IN (:ids)";
+    private static final String PURGE_SQL =
+            "DELETE FROM ledger_outbox WHERE published_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final List<LedgerEventSink> sinks;
+    private final int batchSize;
+    private final int retentionDays;
+
+    public OutboxRelay(
+            JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedJdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            List<LedgerEventSink> sinks,
+            @Value("${bank.outbox.batch-size:500}") int batchSize,
+            @Value("${bank.outbox.retention-days:7}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.sinks = sinks;
+        this.batchSize = batchSize;
+        this.retentionDays = retentionDays;
+    }
+
+    // ==== 定时投递：一次循环直到发件箱清空 ====
+    @Scheduled(fixedDelayString = "${bank.outbox.poll-interval-ms:200}")
+    public void relay() {
+        try {
+            Integer published;
+            do {
+                published = transactionTemplate.execute(status -> relayBatch());
+            } while (published != null && published == batchSize);
+        } catch (RuntimeException e) {
+            log.error("发件箱投递失败，待下次重试", e);
+        }
+    }
+
+    // 在当前事务内领取一批、投递、标记
+    private int relayBatch() {
+        List<LedgerEvent> events = jdbcTemplate.query(FETCH_SQL,
+                (rs, rowNum) -> new LedgerEvent(
+                        rs.getLong("event_id"),
+                        rs.getString("event_type"),
+                        fromJson(rs.getString("payload")),
+                        rs.getTimestamp("created_at").toLocalDateTime()),
+                batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        for (LedgerEventSink sink : sinks) {
+            sink.publish(events);
+        }
+        List<Long> ids = new ArrayList<>(events.size());
+        events.forEach(event -> ids.add(event.eventId()));
+        namedJdbcTemplate.update(MARK_PUBLISHED_SQL,
+                Map.of("now", Timestamp.valueOf(LocalDateTime.now()), "ids", ids));
+        return events.size();
+    }
+
+    // ==== 每日清理已投递的旧事件 ====
+    @Scheduled(cron = "${bank.outbox.purge-cron:0 30 3 * * *}")
+    public void purge() {
+        int rows = jdbcTemplate.update(PURGE_SQL, Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays)));
+        log.info("发件箱清理已投递事件 {} 条", rows);
+    }
+
+    private Transaction fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, Transaction.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("记账事件反序列化失败", e);
+        }
+    }
+}
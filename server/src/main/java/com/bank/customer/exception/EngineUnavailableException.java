@@ -0,0 +1,8 @@
+package com.bank.customer.exception;
+
+// 内存记账引擎已停止受理（记账日志写入或落盘失败），调用方应改走直接改库
+public class EngineUnavailableException extends RuntimeException {
+    public EngineUnavailableException() {
+        super("记账引擎已停止受理");
+    }
+}
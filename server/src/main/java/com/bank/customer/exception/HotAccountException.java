@@ -0,0 +1,8 @@
+package com.bank.customer.exception;
+
+// 账户已开启分槽记账（本实例路由表尚未同步），调用方应改走分槽记账
+public class HotAccountException extends RuntimeException {
+    public HotAccountException(String accountId) {
+        super("账户已开启分槽记账: " + accountId);
+    }
+}
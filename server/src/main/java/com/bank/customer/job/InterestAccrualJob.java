@@ -0,0 +1,298 @@
+package com.bank.customer.job;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bank.customer.component.StripedLedgerEngine;
+import com.bank.customer.component.TransactionBatchWriter;
+import com.bank.customer.dto.InterestAccrualResultDTO;
+import com.bank.customer.entity.Transaction;
+import com.bank.customer.event.LedgerOutbox;
+import com.bank.customer.exception.BusinessException;
+import com.bank.customer.service.BalanceHistoryService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 储蓄账户日计息任务
+ * 按 account_id 把 ACTIVE 储蓄账户切块，多线程并行按日终余额计算利息，
+ * 每块在一个事务中批量更新余额并插入 interest 类型流水。
+ * 已连续完成的最后一个账户记录在 interest_accrual_checkpoint 中，中断后重跑从该位置继续；
+ * 入账前按计息日标记排除已计息账户，检查点之后已提交的块重跑也不会重复计息。
+ * 利息按实际执行时刻入账（落在计息日之后），计入执行当日的日终快照；
+ * 若补记在计息日日终，已生成的快照不会再包含它，快照链就会少算这笔利息。
+ */
+@Slf4j
+@Component
+public class InterestAccrualJob {
+    private static final MathContext RATE_CONTEXT = MathContext.DECIMAL64;
+    // 计息流水的描述记录计息日，用于识别已计息账户
+    private static final String MARKER_FORMAT = "%s 计息";
+
+    private static final String CHUNK_ACCOUNTS_SQL =
+            "SELECT TOP (?) a.account_id, s.closing_balance FROM account a " +
+            "LEFT JOIN account_balance_snapshot s ON s.account_id = a.account_id AND s.snapshot_date = ? " +
+            "WHERE a.account_id > ? AND a.account_type = 'savings' AND a.status = 'ACTIVE' AND a.created_at < ? " +
+            "ORDER BY a.account_id";
+    // 计息日之后入账的该日利息；按 (to_account_id, transaction_time) 逐户定位，走 ix_account_transaction_to_time
+    private static final String ACCRUED_SQL =
+            "SELECT to_account_id FROM account_transaction " +
+            "WHERE to_account_id IN (:ids) AND transaction_time >= :dayEnd AND transaction_type = 'interest' " +
+            "AND description = :marker";
+    private static final String UPDATE_BALANCE_SQL =
+            "UPDATE account SET balance = balance + ? WHERE account_id = ?";
+    private static final String LOAD_CHECKPOINT_SQL =
+            "SELECT last_account_id, completed FROM interest_accrual_checkpoint WHERE accrual_date = ?";
+    private static final String INSERT_CHECKPOINT_SQL =
+            "INSERT INTO interest_accrual_checkpoint (accrual_date, last_account_id, completed) VALUES (?, '', 0)";
+    private static final String UPDATE_CHECKPOINT_SQL =
+            "UPDATE interest_accrual_checkpoint SET last_account_id = ?, completed = ?, updated_at = GETDATE() " +
+            "WHERE accrual_date = ?";
+    private static final String INCOMPLETE_SQL =
+            "SELECT accrual_date FROM interest_accrual_checkpoint WHERE completed = 0 AND accrual_date < ? " +
+            "ORDER BY accrual_date";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BalanceHistoryService balanceHistoryService;
+    private final TransactionBatchWriter transactionWriter;
+    private final LedgerOutbox ledgerOutbox;
+    private final Optional<StripedLedgerEngine> ledgerEngine;
+    private final BigDecimal dailyRate;
+    private final int chunkSize;
+    private final int threads;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public InterestAccrualJob(
+            JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedJdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            BalanceHistoryService balanceHistoryService,
+            TransactionBatchWriter transactionWriter,
+            LedgerOutbox ledgerOutbox,
+            Optional<StripedLedgerEngine> ledgerEngine,
+            @Value("${bank.interest.savings-annual-rate:0.0035}") BigDecimal annualRate,
+            @Value("${bank.interest.chunk-size:2000}") int chunkSize,
+            @Value("${bank.interest.threads:0}") int threads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.balanceHistoryService = balanceHistoryService;
+        this.transactionWriter = transactionWriter;
+        this.ledgerOutbox = ledgerOutbox;
+        this.ledgerEngine = ledgerEngine;
+        this.dailyRate = annualRate.divide(BigDecimal.valueOf(365), RATE_CONTEXT);
+        this.chunkSize = chunkSize;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    // ==== 每日为前一日计息（日终快照之后执行），并续跑之前未完成的计息日 ====
+    @Scheduled(cron = "${bank.interest.cron:0 30 0 * * *}")
+    public void runDaily() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        List<LocalDate> dates = new ArrayList<>(jdbcTemplate.queryForList(
+                INCOMPLETE_SQL, LocalDate.class, Date.valueOf(yesterday)));
+        dates.add(yesterday);
+        for (LocalDate date : dates) {
+            InterestAccrualResultDTO result = accrue(date);
+            log.info("计息日 {} 入账 {} 户，利息合计 {}", date, result.accounts(), result.totalInterest());
+        }
+    }
+
+    public InterestAccrualResultDTO accrue(LocalDate date) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("计息任务正在运行");
+        }
+        try {
+            return run(date);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private InterestAccrualResultDTO run(LocalDate date) {
+        Progress progress = new Progress(date);
+        if (progress.isCompleted()) {
+            return new InterestAccrualResultDTO(date, 0, 0, BigDecimal.ZERO);
+        }
+        Timestamp dayEnd = Timestamp.valueOf(date.plusDays(1).atStartOfDay());
+        AtomicLong accounts = new AtomicLong();
+        AtomicReference<BigDecimal> total = new AtomicReference<>(BigDecimal.ZERO);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        // 限制排队中的块数，避免切块远远跑在处理前面
+        Semaphore permits = new Semaphore(threads * 2);
+        List<Future<?>> futures = new ArrayList<>();
+        long seq = 0;
+        try {
+            String lastAccountId = progress.watermark();
+            while (!progress.failed()) {
+                List<AccountBalance> chunk = jdbcTemplate.query(CHUNK_ACCOUNTS_SQL,
+                        (rs, rowNum) -> new AccountBalance(rs.getString("account_id"), rs.getBigDecimal("closing_balance")),
+                        chunkSize, Date.valueOf(date), lastAccountId, dayEnd);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                long chunkSeq = seq++;
+                permits.acquireUninterruptibly();
+                futures.add(pool.submit(() -> {
+                    try {
+                        ChunkResult result = accrueChunk(chunk, date);
+                        accounts.addAndGet(result.accounts());
+                        total.accumulateAndGet(result.interest(), BigDecimal::add);
+                        progress.completed(chunkSeq, chunk.get(chunk.size() - 1).accountId());
+                    } catch (RuntimeException e) {
+                        progress.fail();
+                        log.error("计息块 {}~{} 失败", chunk.get(0).accountId(),
+                                chunk.get(chunk.size() - 1).accountId(), e);
+                        throw e;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+                lastAccountId = chunk.get(chunk.size() - 1).accountId();
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            progress.complete();
+        } catch (Exception e) {
+            throw new IllegalStateException("计息中断，重跑将从 " + progress.watermark() + " 之后继续", e);
+        } finally {
+            pool.shutdown();
+        }
+        return new InterestAccrualResultDTO(date, seq, accounts.get(), total.get());
+    }
+
+    // 处理一个账户块：并行线程内计算利息，再在一个事务中排除已计息账户并批量入账
+    private ChunkResult accrueChunk(List<AccountBalance> chunk, LocalDate date) {
+        LocalDateTime postedAt = LocalDateTime.now();
+        String marker = MARKER_FORMAT.formatted(date);
+        List<Transaction> accruals = new ArrayList<>(chunk.size());
+        for (AccountBalance account : chunk) {
+            // 日终快照缺失（快照任务未跑到该日）时回退到按流水推算
+            BigDecimal basis = account.closingBalance() != null
+                    ? account.closingBalance()
+                    : balanceHistoryService.getBalanceAsOf(account.accountId(), date);
+            BigDecimal interest = basis.multiply(dailyRate).setScale(2, RoundingMode.HALF_UP);
+            if (interest.signum() > 0) {
+                accruals.add(new Transaction(null, null, account.accountId(), interest, "interest", postedAt, marker));
+            }
+        }
+        if (accruals.isEmpty()) {
+            return new ChunkResult(0, BigDecimal.ZERO);
+        }
+        return transactionTemplate.execute(status -> {
+            List<String> ids = accruals.stream().map(Transaction::getToAccountId).toList();
+            // 直接改库，本事务结束前这些账户由记账引擎让出
+            ledgerEngine.ifPresent(engine -> engine.bypass(ids));
+            Set<String> accrued = new HashSet<>(namedJdbcTemplate.queryForList(ACCRUED_SQL,
+                    Map.of("ids", ids, "dayEnd", Timestamp.valueOf(date.plusDays(1).atStartOfDay()), "marker", marker),
+                    String.class));
+            List<Transaction> pending = accruals.stream()
+                    .filter(t -> !accrued.contains(t.getToAccountId()))
+                    .toList();
+            List<Object[]> balanceArgs = new ArrayList<>(pending.size());
+            BigDecimal interest = BigDecimal.ZERO;
+            for (Transaction t : pending) {
+                balanceArgs.add(new Object[] { t.getAmount(), t.getToAccountId() });
+                interest = interest.add(t.getAmount());
+            }
+            jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, balanceArgs);
+            transactionWriter.insertAll(pending);
+            ledgerOutbox.recordAll(pending);
+            return new ChunkResult(pending.size(), interest);
+        });
+    }
+
+    private record AccountBalance(String accountId, BigDecimal closingBalance) {
+    }
+
+    private record ChunkResult(long accounts, BigDecimal interest) {
+    }
+
+    // ==== 进度记录：只推进到连续完成的最后一块，持久化到检查点表 ====
+    private class Progress {
+        private final LocalDate date;
+        private final TreeMap<Long, String> finished = new TreeMap<>();
+        private final boolean completed;
+        private long nextSeq;
+        private String watermark;
+        private volatile boolean failed;
+
+        Progress(LocalDate date) {
+            this.date = date;
+            List<Object[]> rows = jdbcTemplate.query(LOAD_CHECKPOINT_SQL,
+                    (rs, rowNum) -> new Object[] { rs.getString("last_account_id"), rs.getBoolean("completed") },
+                    Date.valueOf(date));
+            if (rows.isEmpty()) {
+                jdbcTemplate.update(INSERT_CHECKPOINT_SQL, Date.valueOf(date));
+                this.watermark = "";
+                this.completed = false;
+            } else {
+                this.watermark = (String) rows.get(0)[0];
+                this.completed = (Boolean) rows.get(0)[1];
+            }
+        }
+
+        boolean isCompleted() {
+            return completed;
+        }
+
+        synchronized String watermark() {
+            return watermark;
+        }
+
+        synchronized void completed(long seq, String lastAccountId) {
+            finished.put(seq, lastAccountId);
+            boolean advanced = false;
+            while (finished.containsKey(nextSeq)) {
+                watermark = finished.remove(nextSeq++);
+                advanced = true;
+            }
+            if (advanced) {
+                jdbcTemplate.update(UPDATE_CHECKPOINT_SQL, watermark, false, Date.valueOf(date));
+            }
+        }
+
+        synchronized void complete() {
+            jdbcTemplate.update(UPDATE_CHECKPOINT_SQL, watermark, true, Date.valueOf(date));
+        }
+
+        void fail() {
+            failed = true;
+        }
+
+        boolean failed() {
+            return failed;
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package com.bank.customer.job;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bank.customer.component.AccountCache;
+import com.bank.customer.component.HotAccountLedger;
+import com.bank.customer.component.LoanCalculator;
+import com.bank.customer.component.StripedLedgerEngine;
+import com.bank.customer.component.TransactionBatchWriter;
+import com.bank.customer.dto.LoanAutoDebitResultDTO;
+import com.bank.customer.entity.AccountStatus;
+import com.bank.customer.entity.LoanApplication;
+import com.bank.customer.entity.LoanRepayment;
+import com.bank.customer.entity.Transaction;
+import com.bank.customer.event.LedgerOutbox;
+import com.bank.customer.exception.BusinessException;
+import com.bank.customer.exception.InsufficientBalanceException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 贷款到期自动扣款任务
+ * 按 (next_due_date, loan_id) 顺序分块读取截至扣款日仍有未还期次的已审批贷款，多线程并行处理；
+ * 每块在一个事务中锁定贷款与还款账户，内存内逐笔扣减后批量更新余额、写入 loan_repay 流水、
+ * 标记已还期次（LAZY 模式插入已还期次）并更新贷款的已还 / 待还期数与下一还款日。
+ * 每笔贷款每次只扣最早未还的一期。
+ * 余额不足、账户状态异常、仍有待还期次却算不出下一还款日的期次汇总写入扣款失败报告（CSV），次日任务会再次尝试。
+ */
+@Slf4j
+@Component
+public class LoanAutoDebitJob {
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final LocalDate CURSOR_START = LocalDate.of(1900, 1, 1);
+
+    // 走 ix_loan_application_next_due（过滤索引，status 条件须为字面量）
+    private static final String DUE_LOANS_SQL =
+            "SELECT TOP (?) loan_id, account_id, next_due_date FROM loan_application " +
+            "WHERE status = 'APPROVED' AND next_due_date <= ? " +
+            "AND (next_due_date > ? OR (next_due_date = ? AND loan_id > ?)) " +
+            "ORDER BY next_due_date, loan_id";
+    // 加锁后复核：期间被手工还款的贷款不再扣款
+    private static final String LOCK_LOANS_SQL =
+            "SELECT loan_id, account_id, amount, interest_rate, term, start_date, end_date, schedule_mode, next_due_date, " +
+            "pending_count " +
+            "FROM loan_application WITH (UPDLOCK, ROWLOCK) " +
+            "WHERE loan_id IN (:ids) AND status = 'APPROVED' AND next_due_date <= :dueDate ORDER BY loan_id";
+    // 已落库的到期期次（EAGER 全部落库；LAZY 只有已还或单独调整过的期次），走 ix_loan_repayment_loan_date
+    private static final String STORED_INSTALLMENTS_SQL =
+            "SELECT r.repayment_id, r.loan_id, r.amount, r.principal, r.interest, r.status FROM loan_application l " +
+            "JOIN loan_repayment r ON r.loan_id = l.loan_id AND r.repayment_date = l.next_due_date " +
+            "WHERE l.loan_id IN (:ids)";
+    private static final String LOCK_ACCOUNTS_SQL =
+            "SELECT account_id, balance, status, hot_slots FROM account WITH (UPDLOCK, ROWLOCK) "
+                    + "WHERE account_id IN (:ids) ORDER BY account_id";
+    private static final String UPDATE_BALANCE_SQL =
+            "UPDATE account SET balance = balance - ? WHERE account_id = ?";
+    // 仅 PENDING 时生效；贷款行已锁定，受影响行数不为 1 说明期次状态与读取时不一致
+    private static final String MARK_PAID_SQL =
+            "UPDATE loan_repayment SET status = 'PAID' WHERE repayment_id = ? AND status = 'PENDING'";
+    private static final String INSERT_PAID_SQL =
+            "INSERT INTO loan_repayment (loan_id, repayment_date, amount, principal, interest, status) "
+                    + "VALUES (?, ?, ?, ?, ?, 'PAID')";
+    // 与 LoanApplicationRepository.recordPaid 相同的计数维护，待还期数归零时关闭贷款
+    private static final String UPDATE_LOAN_SQL =
+            "UPDATE loan_application SET remaining_principal = remaining_principal - ?, " +
+            "paid_count = paid_count + ?, pending_count = pending_count - ?, " +
+            "next_due_date = CASE WHEN pending_count - ? <= 0 THEN NULL ELSE ? END, " +
+            "status = CASE WHEN pending_count - ? <= 0 THEN 'CLOSED' ELSE status END " +
+            "WHERE loan_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LoanCalculator loanCalculator;
+    private final HotAccountLedger hotAccountLedger;
+    private final AccountCache accountCache;
+    private final TransactionBatchWriter transactionWriter;
+    private final LedgerOutbox ledgerOutbox;
+    private final Optional<StripedLedgerEngine> ledgerEngine;
+    private final Path outputRoot;
+    private final int chunkSize;
+    private final int threads;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public LoanAutoDebitJob(
+            JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedJdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            LoanCalculator loanCalculator,
+            HotAccountLedger hotAccountLedger,
+            AccountCache accountCache,
+            TransactionBatchWriter transactionWriter,
+            LedgerOutbox ledgerOutbox,
+            Optional<StripedLedgerEngine> ledgerEngine,
+            @Value("${bank.loan.auto-debit.output-dir:auto-debit}") String outputDir,
+            @Value("${bank.loan.auto-debit.chunk-size:1000}") int chunkSize,
+            @Value("${bank.loan.auto-debit.threads:0}") int threads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.loanCalculator = loanCalculator;
+        this.hotAccountLedger = hotAccountLedger;
+        this.accountCache = accountCache;
+        this.transactionWriter = transactionWriter;
+        this.ledgerOutbox = ledgerOutbox;
+        this.ledgerEngine = ledgerEngine;
+        this.outputRoot = Paths.get(outputDir);
+        this.chunkSize = chunkSize;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    // ==== 每日扣当日及之前到期的期次 ====
+    @Scheduled(cron = "${bank.loan.auto-debit.cron:0 0 22 * * *}")
+    public void runDaily() {
+        LoanAutoDebitResultDTO result = debit(LocalDate.now());
+        log.info("贷款自动扣款 {}：到期 {} 期，成功 {} 期，失败 {} 期，扣款合计 {}，耗时 {} ms",
+                result.dueDate(), result.installments(), result.paid(), result.failed(),
+                result.totalDebited(), result.elapsedMillis());
+    }
+
+    public LoanAutoDebitResultDTO debit(LocalDate dueDate) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("贷款自动扣款任务正在运行");
+        }
+        try {
+            Files.createDirectories(outputRoot);
+            Path report = outputRoot.resolve(
+                    "auto-debit-" + dueDate + "-" + LocalDateTime.now().format(FILE_TIME) + ".csv");
+            try (BufferedWriter writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+                writer.write("loan_id,account_id,due_date,amount,reason\n");
+                return run(dueDate, new FailureReport(writer), report);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private LoanAutoDebitResultDTO run(LocalDate dueDate, FailureReport report, Path file) {
+        long startedAt = System.currentTimeMillis();
+        AtomicLong installments = new AtomicLong();
+        AtomicLong paid = new AtomicLong();
+        AtomicReference<BigDecimal> total = new AtomicReference<>(BigDecimal.ZERO);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        // 限制排队中的块数，避免切块远远跑在处理前面
+        Semaphore permits = new Semaphore(threads * 2);
+        List<Future<?>> futures = new ArrayList<>();
+        long chunks = 0;
+        try {
+            LocalDate lastDue = CURSOR_START;
+            long lastLoanId = 0;
+            while (true) {
+                List<DueLoan> chunk = jdbcTemplate.query(DUE_LOANS_SQL,
+                        (rs, rowNum) -> new DueLoan(rs.getLong("loan_id"), rs.getString("account_id"),
+                                rs.getDate("next_due_date").toLocalDate()),
+                        chunkSize, Date.valueOf(dueDate), Date.valueOf(lastDue), Date.valueOf(lastDue), lastLoanId);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                chunks++;
+                permits.acquireUninterruptibly();
+                futures.add(pool.submit(() -> {
+                    try {
+                        ChunkResult result = debitChunk(chunk, dueDate);
+                        installments.addAndGet(result.installments());
+                        paid.addAndGet(result.paid());
+                        total.accumulateAndGet(result.debited(), BigDecimal::add);
+                        result.failures().forEach(report::write);
+                    } catch (RuntimeException e) {
+                        // 整块回滚，块内各笔记为失败，次日重试
+                        log.error("贷款自动扣款块 {}~{} 失败", chunk.get(0).loanId(),
+                                chunk.get(chunk.size() - 1).loanId(), e);
+                        installments.addAndGet(chunk.size());
+                        for (DueLoan loan : chunk) {
+                            report.write(new Failure(loan.loanId(), loan.accountId(), loan.nextDueDate(), null,
+                                    "批次执行失败: " + e.getMessage()));
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                }));
+                DueLoan last = chunk.get(chunk.size() - 1);
+                lastDue = last.nextDueDate();
+                lastLoanId = last.loanId();
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("贷款自动扣款中断，失败报告不完整: " + file.toAbsolutePath(), e);
+        } finally {
+            pool.shutdown();
+        }
+        return new LoanAutoDebitResultDTO(dueDate, chunks, installments.get(), paid.get(), report.count(),
+                total.get(), System.currentTimeMillis() - startedAt, file.toAbsolutePath().toString());
+    }
+
+    // 批量更新的每条语句都须恰好更新一行，否则整块回滚
+    private static void requireAllUpdated(int[] counts, String operation) {
+        for (int count : counts) {
+            if (count != 1) {
+                throw new IllegalStateException(operation + "受影响行数异常: " + count);
+            }
+        }
+    }
+
+    // 处理一个贷款块：锁定贷款 → 确定到期期次 → 锁定账户、内存逐笔扣款 → 批量写库
+    private ChunkResult debitChunk(List<DueLoan> chunk, LocalDate dueDate) {
+        List<Long> ids = chunk.stream().map(DueLoan::loanId).toList();
+        return transactionTemplate.execute(status -> {
+            // 直接改库，本事务结束前这些账户由记账引擎让出
+            ledgerEngine.ifPresent(engine -> engine.bypass(chunk.stream().map(DueLoan::accountId).toList()));
+            List<Installment> installments = loadInstallments(ids, dueDate);
+            if (installments.isEmpty()) {
+                return new ChunkResult(0, 0, BigDecimal.ZERO, List.of());
+            }
+
+            Set<String> accountIds = new TreeSet<>();
+            installments.forEach(i -> accountIds.add(i.accountId()));
+            Map<String, BigDecimal> balances = new HashMap<>();
+            Map<String, String> statuses = new HashMap<>();
+            Set<String> hotAccounts = new TreeSet<>();
+            namedJdbcTemplate.query(LOCK_ACCOUNTS_SQL, Map.of("ids", accountIds), rs -> {
+                balances.put(rs.getString("account_id"), rs.getBigDecimal("balance"));
+                statuses.put(rs.getString("account_id"), rs.getString("status"));
+                if (rs.getInt("hot_slots") > 0) {
+                    hotAccounts.add(rs.getString("account_id"));
+                }
+            });
+
+            Map<String, BigDecimal> deltas = new TreeMap<>();
+            List<Transaction> transactions = new ArrayList<>();
+            List<Object[]> markPaidArgs = new ArrayList<>();
+            List<Object[]> insertPaidArgs = new ArrayList<>();
+            List<Object[]> loanArgs = new ArrayList<>();
+            List<Failure> failures = new ArrayList<>();
+            BigDecimal debited = BigDecimal.ZERO;
+            LocalDateTime time = LocalDateTime.now();
+            for (Installment installment : installments) {
+                Date nextDue = toDate(loanCalculator.nextRepaymentDate(installment.loan(), installment.dueDate()));
+                Long loanId = installment.loan().getLoanId();
+                // 本期之后仍有待还期次却算不出下一还款日（计划与计数不一致）：记失败，不能把 next_due_date 置空
+                int remaining = installment.loan().getPendingCount() - (installment.paid() ? 0 : 1);
+                if (nextDue == null && remaining > 0) {
+                    failures.add(new Failure(loanId, installment.accountId(), installment.dueDate(),
+                            installment.amount(), "下一还款日无法确定，剩余 " + remaining + " 期待还"));
+                    continue;
+                }
+                // 该期已提前还清（计数已在还款时更新），只推进下一还款日
+                if (installment.paid()) {
+                    loanArgs.add(new Object[] { BigDecimal.ZERO, 0, 0, 0, nextDue, 0, loanId });
+                    continue;
+                }
+                String accountId = installment.accountId();
+                BigDecimal amount = installment.amount();
+                if (!AccountStatus.ACTIVE.name().equals(statuses.get(accountId))) {
+                    failures.add(new Failure(loanId, accountId, installment.dueDate(), amount, "账户状态异常"));
+                    continue;
+                }
+                // 分槽账户的余额不在主行上，逐笔走分槽记账；其余账户在内存中合并
+                if (hotAccounts.contains(accountId)) {
+                    try {
+                        hotAccountLedger.debit(accountId, amount);
+                    } catch (InsufficientBalanceException e) {
+                        failures.add(new Failure(loanId, accountId, installment.dueDate(), amount, "账户余额不足"));
+                        continue;
+                    }
+                } else if (balances.get(accountId).compareTo(amount) < 0) {
+                    failures.add(new Failure(loanId, accountId, installment.dueDate(), amount, "账户余额不足"));
+                    continue;
+                } else {
+                    balances.merge(accountId, amount.negate(), BigDecimal::add);
+                    deltas.merge(accountId, amount, BigDecimal::add);
+                }
+
+                String description = "贷款 " + loanId + " " + installment.dueDate() + " 期还款";
+                transactions.add(new Transaction(null, accountId, null, amount, "loan_repay", time, description));
+                if (installment.repaymentId() != null) {
+                    markPaidArgs.add(new Object[] { installment.repaymentId() });
+                } else {
+                    insertPaidArgs.add(new Object[] { loanId, Date.valueOf(installment.dueDate()), amount,
+                            installment.principal(), installment.interest() });
+                }
+                loanArgs.add(new Object[] { installment.principal(), 1, 1, 1, nextDue, 1, loanId });
+                debited = debited.add(amount);
+            }
+
+            List<Object[]> balanceArgs = new ArrayList<>(deltas.size());
+            deltas.forEach((accountId, delta) -> balanceArgs.add(new Object[] { delta, accountId }));
+            jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, balanceArgs);
+            transactionWriter.insertAll(transactions);
+            requireAllUpdated(jdbcTemplate.batchUpdate(MARK_PAID_SQL, markPaidArgs), "标记已还期次");
+            jdbcTemplate.batchUpdate(INSERT_PAID_SQL, insertPaidArgs);
+            jdbcTemplate.batchUpdate(UPDATE_LOAN_SQL, loanArgs);
+            ledgerOutbox.recordAll(transactions);
+            accountCache.invalidateBalanceAfterCommit(
+                    transactions.stream().map(Transaction::getFromAccountId).distinct().toArray(String[]::new));
+            return new ChunkResult(installments.size(), transactions.size(), debited, failures);
+        });
+    }
+
+    // 锁定块内仍到期的贷款，确定各自最早未还一期的金额：已落库的取库中记录，LAZY 未落库的按贷款参数计算
+    private List<Installment> loadInstallments(List<Long> ids, LocalDate dueDate) {
+        Map<Long, LoanApplication> loans = new LinkedHashMap<>();
+        Map<Long, String> accounts = new HashMap<>();
+        namedJdbcTemplate.query(LOCK_LOANS_SQL, Map.of("ids", ids, "dueDate", Date.valueOf(dueDate)), rs -> {
+            LoanApplication loan = new LoanApplication();
+            loan.setLoanId(rs.getLong("loan_id"));
+            loan.setAmount(rs.getBigDecimal("amount"));
+            loan.setInterestRate(rs.getBigDecimal("interest_rate"));
+            loan.setTerm(rs.getInt("term"));
+            loan.setStartDate(rs.getDate("start_date").toLocalDate());
+            loan.setEndDate(rs.getDate("end_date").toLocalDate());
+            loan.setScheduleMode(LoanApplication.ScheduleMode.valueOf(rs.getString("schedule_mode")));
+            loan.setNextDueDate(rs.getDate("next_due_date").toLocalDate());
+            loan.setPendingCount(rs.getInt("pending_count"));
+            loans.put(loan.getLoanId(), loan);
+            accounts.put(loan.getLoanId(), rs.getString("account_id"));
+        });
+        if (loans.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Installment> stored = new HashMap<>();
+        namedJdbcTemplate.query(STORED_INSTALLMENTS_SQL, Map.of("ids", loans.keySet()), rs -> {
+            long loanId = rs.getLong("loan_id");
+            LoanApplication loan = loans.get(loanId);
+            if (loan != null) {
+                stored.put(loanId, new Installment(loan, accounts.get(loanId), loan.getNextDueDate(),
+                        rs.getLong("repayment_id"), rs.getBigDecimal("amount"), rs.getBigDecimal("principal"),
+                        rs.getBigDecimal("interest"),
+                        LoanRepayment.RepaymentStatus.PAID.name().equals(rs.getString("status"))));
+            }
+        });
+
+        // 未落库的 LAZY 期次批量计算，相同利率与期限的贷款共用年金系数
+        List<LoanApplication> computed = new ArrayList<>();
+        for (LoanApplication loan : loans.values()) {
+            if (!stored.containsKey(loan.getLoanId())
+                    && loan.getScheduleMode() == LoanApplication.ScheduleMode.LAZY) {
+                computed.add(loan);
+            }
+        }
+        List<LoanCalculator.Amortization> amortizations = loanCalculator.amortizeAll(computed.stream()
+                .map(loan -> new LoanCalculator.LoanTerms(loan.getAmount(), loan.getInterestRate(), loan.getTerm()))
+                .toList());
+        Map<Long, Installment> lazy = new HashMap<>();
+        for (int i = 0; i < computed.size(); i++) {
+            LoanApplication loan = computed.get(i);
+            int period = amortizations.get(i).periodOf(loan, loan.getNextDueDate());
+            if (period == 0) {
+                log.warn("贷款 {} 的下一还款日 {} 不在还款计划内，跳过", loan.getLoanId(), loan.getNextDueDate());
+                continue;
+            }
+            LoanRepayment repayment = amortizations.get(i).toRepayment(loan, period, loan.getNextDueDate());
+            lazy.put(loan.getLoanId(), new Installment(loan, accounts.get(loan.getLoanId()), loan.getNextDueDate(),
+                    null, repayment.getAmount(), repayment.getPrincipal(), repayment.getInterest(), false));
+        }
+
+        List<Installment> installments = new ArrayList<>(loans.size());
+        for (Long loanId : loans.keySet()) {
+            Installment installment = stored.containsKey(loanId) ? stored.get(loanId) : lazy.get(loanId);
+            if (installment != null) {
+                installments.add(installment);
+            } else if (loans.get(loanId).getScheduleMode() == LoanApplication.ScheduleMode.EAGER) {
+                log.warn("贷款 {} 的下一还款日 {} 没有对应的还款记录，跳过", loanId, loans.get(loanId).getNextDueDate());
+            }
+        }
+        return installments;
+    }
+
+    private static Date toDate(LocalDate date) {
+        return date == null ? null : Date.valueOf(date);
+    }
+
+    private record DueLoan(long loanId, String accountId, LocalDate nextDueDate) {
+    }
+
+    // 一笔到期期次；repaymentId 为空表示 LAZY 模式下按需计算、尚未落库
+    private record Installment(LoanApplication loan, String accountId, LocalDate dueDate, Long repaymentId,
+            BigDecimal amount, BigDecimal principal, BigDecimal interest, boolean paid) {
+    }
+
+    private record Failure(long loanId, String accountId, LocalDate dueDate, BigDecimal amount, String reason) {
+    }
+
+    private record ChunkResult(long installments, long paid, BigDecimal debited, List<Failure> failures) {
+    }
+
+    // ==== 扣款失败报告（多线程共享，逐行加锁写入） ====
+    private static final class FailureReport {
+        private final BufferedWriter writer;
+        private long count;
+
+        FailureReport(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        synchronized void write(Failure failure) {
+            try {
+                writer.write(failure.loanId() + "," + failure.accountId() + "," + failure.dueDate() + ","
+                        + (failure.amount() == null ? "" : failure.amount().toPlainString()) + ","
+                        + failure.reason().replace(',', ' ').replace('\n', ' ') + "\n");
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        synchronized long count() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.bank.customer.job;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.bank.customer.dto.ReconciliationResultDTO;
+import com.bank.customer.exception.BusinessException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 账务核对任务：校验每个账户的余额（含热点分槽）等于其全部流水的净额
+ * 按 account_id 顺序切块，多线程并行；每块沿 from/to 两个索引范围扫描流式读取流水，
+ * 以金额“分”为单位在 long 键的开放寻址表中累加，再与该块账户余额逐一比较。
+ * 不一致的账户用单条语句复核一次，排除核对期间新提交的交易，仍不一致的写入差异报告（CSV）。
+ * 已注销账户的余额在注销时清零、不对应流水，不参与核对。
+ */
+@Slf4j
+@Component
+public class ReconciliationJob {
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final String CHUNK_ACCOUNTS_SQL =
+            "SELECT TOP (?) account_id FROM account WHERE account_id > ? ORDER BY account_id";
+    // 块内账户的全部流水（分），转出为负、转入为正
+    private static final String CHUNK_FLOWS_SQL =
+            "SELECT from_account_id AS account_id, -CAST(amount * 100 AS BIGINT) AS cents " +
+            "FROM account_transaction WHERE from_account_id BETWEEN ? AND ? " +
+            "UNION ALL " +
+            "SELECT to_account_id, CAST(amount * 100 AS BIGINT) " +
+            "FROM account_transaction WHERE to_account_id BETWEEN ? AND ?";
+    private static final String CHUNK_BALANCES_SQL =
+            "SELECT a.account_id, a.status, CAST((a.balance + COALESCE(s.balance, 0)) * 100 AS BIGINT) AS cents " +
+            "FROM account a " +
+            "OUTER APPLY (SELECT SUM(balance) AS balance FROM account_balance_slot " +
+            "WHERE account_id = a.account_id) s " +
+            "WHERE a.account_id BETWEEN ? AND ? AND a.status <> 'CLOSED'";
+    // 单账户复核：余额与净额在同一语句中读取
+    private static final String RECHECK_SQL =
+            "SELECT CAST((a.balance + COALESCE((SELECT SUM(balance) FROM account_balance_slot " +
+            "WHERE account_id = a.account_id), 0)) * 100 AS BIGINT) AS balance, " +
+            "COALESCE((SELECT SUM(CAST(amount * 100 AS BIGINT)) FROM account_transaction " +
+            "WHERE to_account_id = a.account_id), 0) - " +
+            "COALESCE((SELECT SUM(CAST(amount * 100 AS BIGINT)) FROM account_transaction " +
+            "WHERE from_account_id = a.account_id), 0) AS net " +
+            "FROM account a WHERE a.account_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Path outputRoot;
+    private final int chunkSize;
+    private final int threads;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ReconciliationJob(
+            DataSource dataSource,
+            @Value("${bank.reconciliation.output-dir:reconciliation}") String outputDir,
+            @Value("${bank.reconciliation.chunk-size:2000}") int chunkSize,
+            @Value("${bank.reconciliation.threads:0}") int threads) {
+        // 独立的 JdbcTemplate，设置 fetchSize 让驱动分批取行
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(5000);
+        this.outputRoot = Paths.get(outputDir);
+        this.chunkSize = chunkSize;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    // ==== 定时核对 ====
+    @Scheduled(cron = "${bank.reconciliation.cron:0 0 3 * * *}")
+    public void runScheduled() {
+        reconcile();
+    }
+
+    public ReconciliationResultDTO reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("账务核对任务正在运行");
+        }
+        try {
+            Files.createDirectories(outputRoot);
+            Path report = outputRoot.resolve("reconciliation-" + LocalDateTime.now().format(FILE_TIME) + ".csv");
+            try (BufferedWriter writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+                writer.write("account_id,status,balance,net_flow,difference\n");
+                return run(new Report(writer), report);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReconciliationResultDTO run(Report report, Path file) {
+        long startedAt = System.currentTimeMillis();
+        AtomicLong accounts = new AtomicLong();
+        AtomicLong rows = new AtomicLong();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        // 限制排队中的块数，避免切块远远跑在处理前面
+        Semaphore permits = new Semaphore(threads * 2);
+        List<Future<?>> futures = new ArrayList<>();
+        long chunks = 0;
+        try {
+            String lastAccountId = "";
+            while (true) {
+                List<String> ids = jdbcTemplate.queryForList(
+                        CHUNK_ACCOUNTS_SQL, String.class, chunkSize, lastAccountId);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                chunks++;
+                permits.acquireUninterruptibly();
+                futures.add(pool.submit(() -> {
+                    try {
+                        reconcileChunk(ids, report, accounts, rows);
+                    } catch (RuntimeException e) {
+                        log.error("账务核对块 {}~{} 失败", ids.get(0), ids.get(ids.size() - 1), e);
+                        throw e;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+                lastAccountId = ids.get(ids.size() - 1);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("账务核对中断，差异报告不完整: " + file.toAbsolutePath(), e);
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.currentTimeMillis() - startedAt;
+        log.info("账务核对完成：{} 块 / {} 个账户 / {} 行流水，差异 {} 个，耗时 {} ms",
+                chunks, accounts.get(), rows.get(), report.count(), elapsed);
+        return new ReconciliationResultDTO(
+                chunks, accounts.get(), rows.get(), report.count(), elapsed, file.toAbsolutePath().toString());
+    }
+
+    // 处理一个账户块：流式累加净额 → 比对余额 → 复核不一致的账户
+    private void reconcileChunk(List<String> ids, Report report, AtomicLong accounts, AtomicLong rows) {
+        String first = ids.get(0);
+        String last = ids.get(ids.size() - 1);
+
+        LongLongMap net = new LongLongMap(ids.size());
+        long[] scanned = new long[1];
+        jdbcTemplate.query(CHUNK_FLOWS_SQL,
+                rs -> {
+                    net.add(Long.parseLong(rs.getString("account_id")), rs.getLong("cents"));
+                    scanned[0]++;
+                },
+                first, last, first, last);
+        rows.addAndGet(scanned[0]);
+
+        List<String[]> suspects = new ArrayList<>();
+        jdbcTemplate.query(CHUNK_BALANCES_SQL,
+                rs -> {
+                    String accountId = rs.getString("account_id");
+                    accounts.incrementAndGet();
+                    if (rs.getLong("cents") != net.get(Long.parseLong(accountId))) {
+                        suspects.add(new String[] { accountId, rs.getString("status") });
+                    }
+                },
+                first, last);
+
+        for (String[] suspect : suspects) {
+            jdbcTemplate.query(RECHECK_SQL,
+                    rs -> {
+                        long balance = rs.getLong("balance");
+                        long flows = rs.getLong("net");
+                        if (balance != flows) {
+                            report.write(suspect[0], suspect[1], balance, flows);
+                        }
+                    },
+                    suspect[0]);
+        }
+    }
+
+    // ==== 差异报告（多线程共享，逐行加锁写入） ====
+    private static final class Report {
+        private final BufferedWriter writer;
+        private long count;
+
+        Report(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        synchronized void write(String accountId, String status, long balance, long net) {
+            try {
+                writer.write(accountId + "," + status + "," + cents(balance) + "," + cents(net) + ","
+                        + cents(balance - net) + "\n");
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        private static String cents(long value) {
+            return BigDecimal.valueOf(value, 2).toPlainString();
+        }
+    }
+
+    // ==== long → long 开放寻址表（账号为纯数字，0 不会出现，用作空槽；装载超过一半时扩容） ====
+    private static final class LongLongMap {
+        private long[] keys;
+        private long[] values;
+        private int mask;
+        private int size;
+
+        LongLongMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(expected * 2 - 1, 1)) << 1;
+            this.keys = new long[capacity];
+            this.values = new long[capacity];
+            this.mask = capacity - 1;
+        }
+
+        void add(long key, long delta) {
+            int i = indexOf(keys, mask, key);
+            if (keys[i] == 0) {
+                if (size * 2 >= keys.length) {
+                    grow();
+                    i = indexOf(keys, mask, key);
+                }
+                keys[i] = key;
+                size++;
+            }
+            values[i] += delta;
+        }
+
+        long get(long key) {
+            int i = indexOf(keys, mask, key);
+            return keys[i] == key ? values[i] : 0;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2];
+            mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != 0) {
+                    int i = indexOf(keys, mask, oldKeys[j]);
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        // 返回 key 所在槽，或其应插入的空槽
+        private static int indexOf(long[] keys, int mask, long key) {
+            int i = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.bank.customer.job;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.bank.customer.dto.StatementRunResultDTO;
+import com.bank.customer.exception.BusinessException;
+import com.bank.customer.service.BalanceHistoryService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 月度对账单生成任务
+ * 按 account_id 顺序把账户切块，每块用一条有序查询流式读取当月流水，多线程并行处理，
+ * 为每个账户输出含期初/期末余额的对账单文件（CSV 或 JSON）。
+ * 已连续完成的最后一块记录在 _progress 文件中，中断后重跑从该位置继续。
+ */
+@Slf4j
+@Component
+public class StatementJob {
+    private static final String PROGRESS_FILE = "_progress";
+
+    private static final String CHUNK_ACCOUNTS_SQL =
+            "SELECT TOP (?) account_id FROM account WHERE account_id > ? AND created_at < ? ORDER BY account_id";
+    private static final String OPENING_BALANCE_SQL =
+            "SELECT account_id, closing_balance FROM account_balance_snapshot " +
+            "WHERE snapshot_date = ? AND account_id BETWEEN ? AND ?";
+    // 块内所有账户的当月流水，按账户、时间、ID 有序返回
+    private static final String CHUNK_FLOWS_SQL =
+            "SELECT x.* FROM (" +
+            "SELECT from_account_id AS account_id, transaction_id, transaction_time, transaction_type, " +
+            "-amount AS delta, to_account_id AS counterparty, description FROM account_transaction " +
+            "WHERE from_account_id BETWEEN ? AND ? AND transaction_time >= ? AND transaction_time < ? " +
+            "UNION ALL " +
+            "SELECT to_account_id, transaction_id, transaction_time, transaction_type, " +
+            "amount, from_account_id, description FROM account_transaction " +
+            "WHERE to_account_id BETWEEN ? AND ? AND transaction_time >= ? AND transaction_time < ?" +
+            ") x ORDER BY x.account_id, x.transaction_time, x.transaction_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BalanceHistoryService balanceHistoryService;
+    private final ObjectMapper objectMapper;
+    private final Path outputRoot;
+    private final int chunkSize;
+    private final int threads;
+    private final String format;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public StatementJob(
+            DataSource dataSource,
+            BalanceHistoryService balanceHistoryService,
+            ObjectMapper objectMapper,
+            @Value("${bank.statement.output-dir:statements}") String outputDir,
+            @Value("${bank.statement.chunk-size:1000}") int chunkSize,
+            @Value("${bank.statement.threads:0}") int threads,
+            @Value("${bank.statement.format:csv}") String format) {
+        // 独立的 JdbcTemplate，设置 fetchSize 让驱动分批取行
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+        this.balanceHistoryService = balanceHistoryService;
+        this.objectMapper = objectMapper;
+        this.outputRoot = Paths.get(outputDir);
+        this.chunkSize = chunkSize;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.format = format;
+    }
+
+    // ==== 每月 1 日生成上月对账单 ====
+    @Scheduled(cron = "${bank.statement.cron:0 0 2 1 * *}")
+    public void runMonthly() {
+        generate(YearMonth.now().minusMonths(1));
+    }
+
+    public StatementRunResultDTO generate(YearMonth month) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("对账单任务正在运行");
+        }
+        try {
+            Path dir = outputRoot.resolve(month.toString());
+            Files.createDirectories(dir);
+            return run(month, dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private StatementRunResultDTO run(YearMonth month, Path dir) throws IOException {
+        LocalDate monthStart = month.atDay(1);
+        Timestamp start = Timestamp.valueOf(monthStart.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        Progress progress = new Progress(dir.resolve(PROGRESS_FILE));
+        AtomicLong accounts = new AtomicLong();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        // 限制排队中的块数，避免切块远远跑在处理前面
+        Semaphore permits = new Semaphore(threads * 2);
+        List<Future<?>> futures = new ArrayList<>();
+        long seq = 0;
+        try {
+            String lastAccountId = progress.watermark();
+            while (!progress.failed()) {
+                List<String> ids = jdbcTemplate.queryForList(
+                        CHUNK_ACCOUNTS_SQL, String.class, chunkSize, lastAccountId, end);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                long chunkSeq = seq++;
+                permits.acquireUninterruptibly();
+                futures.add(pool.submit(() -> {
+                    try {
+                        writeChunk(ids, monthStart, start, end, dir);
+                        accounts.addAndGet(ids.size());
+                        progress.completed(chunkSeq, ids.get(ids.size() - 1));
+                    } catch (RuntimeException e) {
+                        progress.fail();
+                        log.error("对账单块 {}~{} 生成失败", ids.get(0), ids.get(ids.size() - 1), e);
+                        throw e;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+                lastAccountId = ids.get(ids.size() - 1);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("对账单生成中断，重跑将从 " + progress.watermark() + " 之后继续", e);
+        } finally {
+            pool.shutdown();
+        }
+        return new StatementRunResultDTO(month, seq, accounts.get(), dir.toAbsolutePath().toString());
+    }
+
+    // 处理一个账户块：批量取期初余额，流式遍历有序流水并逐账户写文件
+    private void writeChunk(List<String> ids, LocalDate monthStart, Timestamp start, Timestamp end, Path dir) {
+        String first = ids.get(0);
+        String last = ids.get(ids.size() - 1);
+        LocalDate openingDate = monthStart.minusDays(1);
+
+        Map<String, BigDecimal> openings = new HashMap<>();
+        jdbcTemplate.query(OPENING_BALANCE_SQL,
+                rs -> {
+                    openings.put(rs.getString("account_id"), rs.getBigDecimal("closing_balance"));
+                },
+                openingDate, first, last);
+
+        Iterator<String> accounts = ids.iterator();
+        StatementFile[] current = new StatementFile[1];
+        jdbcTemplate.query(CHUNK_FLOWS_SQL,
+                rs -> {
+                    String accountId = rs.getString("account_id");
+                    // 跳过本月无流水的账户，直到当前行所属账户
+                    while (current[0] == null || !current[0].accountId.equals(accountId)) {
+                        if (current[0] != null) {
+                            current[0].close();
+                        }
+                        String next = accounts.next();
+                        current[0] = open(dir, next, openingBalance(openings, next, openingDate), monthStart);
+                    }
+                    current[0].row(rs);
+                },
+                first, last, start, end, first, last, start, end);
+        if (current[0] != null) {
+            current[0].close();
+        }
+        while (accounts.hasNext()) {
+            String next = accounts.next();
+            open(dir, next, openingBalance(openings, next, openingDate), monthStart).close();
+        }
+    }
+
+    private BigDecimal openingBalance(Map<String, BigDecimal> openings, String accountId, LocalDate openingDate) {
+        BigDecimal opening = openings.get(accountId);
+        return opening != null ? opening : balanceHistoryService.getBalanceAsOf(accountId, openingDate);
+    }
+
+    private StatementFile open(Path dir, String accountId, BigDecimal opening, LocalDate monthStart) {
+        try {
+            Path file = dir.resolve(accountId + "." + format);
+            BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            return "json".equals(format)
+                    ? new JsonStatementFile(accountId, opening, writer, YearMonth.from(monthStart))
+                    : new CsvStatementFile(accountId, opening, writer, YearMonth.from(monthStart));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ==== 单个账户的对账单文件 ====
+    private abstract static class StatementFile {
+        final String accountId;
+        BigDecimal balance;
+
+        StatementFile(String accountId, BigDecimal opening) {
+            this.accountId = accountId;
+            this.balance = opening;
+        }
+
+        void row(ResultSet rs) throws SQLException {
+            BigDecimal delta = rs.getBigDecimal("delta");
+            balance = balance.add(delta);
+            try {
+                writeRow(rs.getInt("transaction_id"),
+                        rs.getTimestamp("transaction_time").toLocalDateTime().toString(),
+                        rs.getString("transaction_type"),
+                        rs.getString("counterparty"),
+                        delta,
+                        rs.getString("description"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void close() {
+            try {
+                finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        abstract void writeRow(int id, String time, String type, String counterparty, BigDecimal delta,
+                String description) throws IOException;
+
+        abstract void finish() throws IOException;
+    }
+
+    private static class CsvStatementFile extends StatementFile {
+        private final BufferedWriter writer;
+
+        CsvStatementFile(String accountId, BigDecimal opening, BufferedWriter writer, YearMonth month)
+                throws IOException {
+            super(accountId, opening);
+            this.writer = writer;
+            writer.write("account_id," + accountId + "\n");
+            writer.write("period," + month + "\n");
+            writer.write("opening_balance," + opening.toPlainString() + "\n");
+            writer.write("transaction_id,transaction_time,transaction_type,counterparty,amount,balance,description\n");
+        }
+
+        @Override
+        void writeRow(int id, String time, String type, String counterparty, BigDecimal delta, String description)
+                throws IOException {
+            writer.write(id + "," + time + "," + type + "," + (counterparty == null ? "" : counterparty) + ","
+                    + delta.toPlainString() + "," + balance.toPlainString() + "," + csv(description) + "\n");
+        }
+
+        @Override
+        void finish() throws IOException {
+            writer.write("closing_balance," + balance.toPlainString() + "\n");
+            writer.close();
+        }
+
+        private static String csv(String value) {
+            if (value == null) {
+                return "";
+            }
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+    }
+
+    private class JsonStatementFile extends StatementFile {
+        private final JsonGenerator json;
+
+        JsonStatementFile(String accountId, BigDecimal opening, BufferedWriter writer, YearMonth month)
+                throws IOException {
+            super(accountId, opening);
+            this.json = objectMapper.getFactory().createGenerator(writer);
+            json.writeStartObject();
+            json.writeStringField("accountId", accountId);
+            json.writeStringField("period", month.toString());
+            json.writeNumberField("openingBalance", opening);
+            json.writeArrayFieldStart("transactions");
+        }
+
+        @Override
+        void writeRow(int id, String time, String type, String counterparty, BigDecimal delta, String description)
+                throws IOException {
+            json.writeStartObject();
+            json.writeNumberField("transactionId", id);
+            json.writeStringField("transactionTime", time);
+            json.writeStringField("transactionType", type);
+            json.writeStringField("counterparty", counterparty);
+            json.writeNumberField("amount", delta);
+            json.writeNumberField("balance", balance);
+            json.writeStringField("description", description);
+            json.writeEndObject();
+        }
+
+        @Override
+        void finish() throws IOException {
+            json.writeEndArray();
+            json.writeNumberField("closingBalance", balance);
+            json.writeEndObject();
+            json.close();
+        }
+    }
+
+    // ==== 进度记录：只推进到连续完成的最后一块 ====
+    private static class Progress {
+        private final Path file;
+        private final TreeMap<Long, String> finished = new TreeMap<>();
+        private long nextSeq;
+        private String watermark;
+        private volatile boolean failed;
+
+        Progress(Path file) throws IOException {
+            this.file = file;
+            this.watermark = Files.exists(file) ? Files.readString(file).trim() : "";
+        }
+
+        synchronized String watermark() {
+            return watermark;
+        }
+
+        synchronized void completed(long seq, String lastAccountId) {
+            finished.put(seq, lastAccountId);
+            boolean advanced = false;
+            while (finished.containsKey(nextSeq)) {
+                watermark = finished.remove(nextSeq++);
+                advanced = true;
+            }
+            if (advanced) {
+                save();
+            }
+        }
+
+        void fail() {
+            failed = true;
+        }
+
+        boolean failed() {
+            return failed;
+        }
+
+        private void save() {
+            try {
+                Path tmp = file.resolveSibling(PROGRESS_FILE + ".tmp");
+                Files.writeString(tmp, watermark);
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -6,8 +6,8 @@ import com.bank.customer.entity.AccountStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.jpa.repository.query.Procedure;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -19,16 +19,24 @@ public interface AccountRepository extends JpaRepository<Account, String> {
     // 根据用户ID查找账户
     List<Account> findByUserUserId(Integer userId);
 
-    // 调用存储过程（按名称绑定参数）
-    @Procedure(procedureName = "sp_create_account")
-    String createAccount(
-            @Param("p_user_id") Integer userId,
-            @Param("p_account_type") String accountType);
-
     // 根据状态查询账户
     Page<Account> findByStatus(AccountStatus status, Pageable pageable);
 
-    // 添加余额查询方法
-    @Query("SELECT a.balance FROM Account a WHERE a.accountId = :accountId")
+    // 添加余额查询方法（分槽账户为主行与各槽余额之和）
+    @Query(value = "SELECT a.balance + COALESCE((SELECT SUM(s.balance) FROM account_balance_slot s " +
+            "WHERE s.account_id = a.account_id), 0) FROM account a WHERE a.account_id = :accountId",
+            nativeQuery = true)
     BigDecimal getBalance(@Param("accountId") String accountId);
+
+    // 条件扣款：仅账户 ACTIVE 且余额充足时生效，返回受影响行数
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = a.balance - :amount WHERE a.accountId = :accountId " +
+            "AND a.status = com.bank.customer.entity.AccountStatus.ACTIVE AND a.balance >= :amount")
+    int debitIfSufficient(@Param("accountId") String accountId, @Param("amount") BigDecimal amount);
+
+    // 条件入账：仅账户 ACTIVE 时生效，返回受影响行数
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = a.balance + :amount WHERE a.accountId = :accountId " +
+            "AND a.status = com.bank.customer.entity.AccountStatus.ACTIVE")
+    int creditIfActive(@Param("accountId") String accountId, @Param("amount") BigDecimal amount);
 }
\ No newline at end of file
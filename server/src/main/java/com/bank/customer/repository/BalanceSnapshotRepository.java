@@ -0,0 +1,20 @@
+package com.bank.customer.repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import com.bank.customer.entity.BalanceSnapshot;
+import com.bank.customer.entity.BalanceSnapshotId;
+
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, BalanceSnapshotId> {
+    // 取指定日期（含）之前最近的一份快照
+    Optional<BalanceSnapshot> findFirstByAccountIdAndSnapshotDateLessThanEqualOrderBySnapshotDateDesc(
+            String accountId, LocalDate date);
+
+    // 已生成快照的最新日期
+    @Query("SELECT MAX(s.snapshotDate) FROM BalanceSnapshot s")
+    LocalDate findLatestSnapshotDate();
+}
@@ -0,0 +1,18 @@
+package com.bank.customer.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.bank.customer.entity.IdempotencyRecord;
+import com.bank.customer.entity.IdempotencyRecordId;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, IdempotencyRecordId> {
+    // 清理过期的幂等记录
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :before")
+    int deleteExpired(@Param("before") LocalDateTime before);
+}
@@ -1,11 +1,65 @@
 package com.bank.customer.repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.bank.customer.entity.LoanApplication;
+import com.bank.customer.entity.LoanRepayment;
+
+import jakarta.persistence.LockModeType;
 
 public interface LoanApplicationRepository extends JpaRepository<LoanApplication, Long> {
     List<LoanApplication> findByUserUserId(Integer userId);
-}
\ No newline at end of file
+
+    // 还款定位：一次读取贷款参数与该还款日已落库的期次（未落库时期次字段为空），不加载关联实体
+    // 读取即加更新锁（SQL Server 上为 UPDLOCK, HOLDLOCK, ROWLOCK，持有到事务结束）：
+    // 与自动扣款相同先锁贷款、再改期次，避免交叉加锁死锁；连带锁住的期次行随后本就要改
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l.loanId AS loanId, l.amount AS amount, l.interestRate AS interestRate, l.term AS term, " +
+           "l.startDate AS startDate, l.endDate AS endDate, l.scheduleMode AS scheduleMode, " +
+           "r.repaymentId AS repaymentId, r.amount AS repaymentAmount, r.principal AS principal, " +
+           "r.interest AS interest, r.status AS repaymentStatus " +
+           "FROM LoanApplication l LEFT JOIN LoanRepayment r ON r.loan = l AND r.repaymentDate = :repaymentDate " +
+           "WHERE l.loanId = :loanId")
+    Optional<RepaymentTarget> findRepaymentTarget(
+        @Param("loanId") Long loanId, @Param("repaymentDate") LocalDate repaymentDate);
+
+    // 记一期已还：计数、剩余本金、下一还款日与状态在一条语句中原子更新，待还期数归零时关闭贷款
+    @Modifying
+    @Query("UPDATE LoanApplication l SET l.paidCount = l.paidCount + 1, l.pendingCount = l.pendingCount - 1, " +
+           "l.remainingPrincipal = l.remainingPrincipal - :principal, " +
+           "l.nextDueDate = CASE WHEN l.pendingCount = 1 THEN NULL " +
+           "WHEN l.nextDueDate = :repaymentDate THEN :nextDueDate ELSE l.nextDueDate END, " +
+           "l.status = CASE WHEN l.pendingCount = 1 " +
+           "THEN com.bank.customer.entity.LoanApplication.LoanStatus.CLOSED ELSE l.status END " +
+           "WHERE l.loanId = :loanId AND l.pendingCount > 0")
+    int recordPaid(
+        @Param("loanId") Long loanId,
+        @Param("principal") BigDecimal principal,
+        @Param("repaymentDate") LocalDate repaymentDate,
+        @Param("nextDueDate") LocalDate nextDueDate);
+
+    // 还款定位结果
+    interface RepaymentTarget {
+        Long getLoanId();
+        BigDecimal getAmount();
+        BigDecimal getInterestRate();
+        Integer getTerm();
+        LocalDate getStartDate();
+        LocalDate getEndDate();
+        LoanApplication.ScheduleMode getScheduleMode();
+        Long getRepaymentId();              // 该期未落库时为空
+        BigDecimal getRepaymentAmount();
+        BigDecimal getPrincipal();
+        BigDecimal getInterest();
+        LoanRepayment.RepaymentStatus getRepaymentStatus();
+    }
+}
@@ -5,8 +5,10 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-import com.bank.customer.entity.LoanApplication;
 import com.bank.customer.entity.LoanRepayment;
 
 public interface LoanRepaymentRepository extends JpaRepository<LoanRepayment, Long> {
@@ -14,7 +16,10 @@ public interface LoanRepaymentRepository extends JpaRepository<LoanRepayment, Lo
     
     Optional<LoanRepayment> findByLoan_LoanIdAndRepaymentDate(Long loanId, LocalDate repaymentDate);
     
-    long countByLoanAndStatus(
-        LoanApplication loan, LoanRepayment.RepaymentStatus status
-    );
+    // 条件标记已还：仅 PENDING 时生效，返回受影响行数（0 表示该期已被还清）
+    @Modifying
+    @Query("UPDATE LoanRepayment r SET r.status = com.bank.customer.entity.LoanRepayment.RepaymentStatus.PAID " +
+           "WHERE r.repaymentId = :repaymentId " +
+           "AND r.status = com.bank.customer.entity.LoanRepayment.RepaymentStatus.PENDING")
+    int markPaid(@Param("repaymentId") Long repaymentId);
 }
\ No newline at end of file
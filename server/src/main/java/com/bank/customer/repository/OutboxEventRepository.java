@@ -0,0 +1,8 @@
+package com.bank.customer.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.bank.customer.entity.OutboxEvent;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+}
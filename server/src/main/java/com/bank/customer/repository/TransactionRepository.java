@@ -4,29 +4,81 @@ package com.bank.customer.repository;
 import com.bank.customer.entity.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.jpa.repository.query.Procedure;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+
+import jakarta.persistence.QueryHint;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Integer> {
 
-    @Procedure(procedureName = "sp_transfer")
-    void transferFunds(
-            @Param("p_from_account_id") String fromAccountId,
-            @Param("p_to_account_id") String toAccountId,
-            @Param("p_amount") Double amount);
-
     // 根据账户查询交易记录
     List<Transaction> findByFromAccountIdOrToAccountId(String accountId, String sameAccountId);
 
-    @Query("SELECT t FROM Transaction t WHERE (t.fromAccountId = :accountId OR t.toAccountId = :accountId) " +
-            "AND t.transactionTime BETWEEN :start AND :end")
+    // 转出、转入两路分别走索引后合并（见 V3__hot_query_indexes.sql）
+    @Query(value = "SELECT t.* FROM account_transaction t WHERE t.from_account_id = :accountId " +
+            "AND t.transaction_time BETWEEN :start AND :end " +
+            "UNION ALL " +
+            "SELECT t.* FROM account_transaction t WHERE t.to_account_id = :accountId " +
+            "AND (t.from_account_id IS NULL OR t.from_account_id <> :accountId) " +
+            "AND t.transaction_time BETWEEN :start AND :end", nativeQuery = true)
     List<Transaction> findByAccountAndDateRange(
             @Param("accountId") String accountId,
             @Param("start") LocalDateTime start,
             @Param("end") LocalDateTime end);
+
+    // 游标分页（keyset）：按 (transactionTime, transactionId) 升序取下一页
+    // 转出、转入两路分别走索引后合并，避免 OR 条件导致全表扫描
+    @Query(value = "SELECT TOP (:limit) x.* FROM (" +
+            "SELECT t.* FROM account_transaction t WHERE t.from_account_id = :accountId " +
+            "AND (t.transaction_time > :afterTime OR (t.transaction_time = :afterTime AND t.transaction_id > :afterId)) " +
+            "AND t.transaction_time < :end " +
+            "UNION ALL " +
+            "SELECT t.* FROM account_transaction t WHERE t.to_account_id = :accountId " +
+            "AND (t.from_account_id IS NULL OR t.from_account_id <> :accountId) " +
+            "AND (t.transaction_time > :afterTime OR (t.transaction_time = :afterTime AND t.transaction_id > :afterId)) " +
+            "AND t.transaction_time < :end" +
+            ") x ORDER BY x.transaction_time, x.transaction_id", nativeQuery = true)
+    List<Transaction> findPageByAccountAfter(
+            @Param("accountId") String accountId,
+            @Param("afterTime") LocalDateTime afterTime,
+            @Param("afterId") Integer afterId,
+            @Param("end") LocalDateTime end,
+            @Param("limit") int limit);
+
+    // 流式读取：游标逐批取行，需在事务内消费
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(value = "SELECT x.* FROM (" +
+            "SELECT t.* FROM account_transaction t WHERE t.from_account_id = :accountId " +
+            "AND t.transaction_time >= :start AND t.transaction_time < :end " +
+            "UNION ALL " +
+            "SELECT t.* FROM account_transaction t WHERE t.to_account_id = :accountId " +
+            "AND (t.from_account_id IS NULL OR t.from_account_id <> :accountId) " +
+            "AND t.transaction_time >= :start AND t.transaction_time < :end" +
+            ") x ORDER BY x.transaction_time, x.transaction_id", nativeQuery = true)
+    Stream<Transaction> streamByAccountAndDateRange(
+            @Param("accountId") String accountId,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
+
+    // 区间内账户净流入（转入为正、转出为负），[start, end)
+    @Query(value = "SELECT COALESCE(SUM(x.delta), 0) FROM (" +
+            "SELECT -t.amount AS delta FROM account_transaction t WHERE t.from_account_id = :accountId " +
+            "AND t.transaction_time >= :start AND t.transaction_time < :end " +
+            "UNION ALL " +
+            "SELECT t.amount AS delta FROM account_transaction t WHERE t.to_account_id = :accountId " +
+            "AND t.transaction_time >= :start AND t.transaction_time < :end" +
+            ") x", nativeQuery = true)
+    BigDecimal sumNetFlow(
+            @Param("accountId") String accountId,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
 }
\ No newline at end of file
@@ -1,47 +1,65 @@
 package com.bank.customer.service;
 
+import com.bank.customer.component.AccountCache;
+import com.bank.customer.component.AccountIdAllocator;
+import com.bank.customer.component.AccountSummaryProjection;
+import com.bank.customer.component.HotAccountLedger;
+import com.bank.customer.component.StripedLedgerEngine;
+import com.bank.customer.dto.AccountSummaryDTO;
 import com.bank.customer.entity.Account;
 import com.bank.customer.entity.AccountStatus;
 import com.bank.customer.entity.AuditLog;
 import com.bank.customer.entity.User;
 import com.bank.customer.exception.AccountNotFoundException;
+import com.bank.customer.exception.BusinessException;
 import com.bank.customer.repository.AccountRepository;
 import com.bank.customer.repository.AuditLogRepository;
 import com.bank.customer.repository.UserRepository;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-
-import org.hibernate.Session;
 import lombok.RequiredArgsConstructor;
 
-import org.hibernate.Filter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class AccountService {
+    private static final int MAX_HOT_SLOTS = 256;
+
     private final AccountRepository accountRepository;
     private final UserRepository userRepository;
     private final AuditLogRepository auditLogRepository;
+    private final Optional<StripedLedgerEngine> ledgerEngine;
+    private final HotAccountLedger hotAccountLedger;
+    private final AccountSummaryProjection accountSummaryProjection;
+    private final AccountCache accountCache;
+    private final AccountIdAllocator accountIdAllocator;
 
     @PersistenceContext
     private EntityManager entityManager;
 
     // ==== 开户（管理员权限） ====
+    // 账号由应用分配，直接插入，不再调用存储过程与回查
+    @Transactional
     public Account createAccount(Integer userId, String accountType) {
-        @SuppressWarnings("unused")
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("用户不存在"));
-        String accountId = accountRepository.createAccount(userId, accountType);
-        return accountRepository.findById(accountId)
-                .orElseThrow(() -> new RuntimeException("开户失败"));
+        Account account = new Account();
+        account.setAccountId(accountIdAllocator.next());
+        account.setUser(user);
+        account.setAccountType(accountType);
+        entityManager.persist(account);
+        accountSummaryProjection.refreshAfterCommit(account.getAccountId());
+        return account;
     }
 
     public Page<Account> getAllAccounts(AccountStatus status, int page, int size) {
@@ -52,16 +70,17 @@ public class AccountService {
         return accountRepository.findAll(pageable);
     }
 
-    // ==== 查看用户所有账户（普通用户） ====
-    public List<Account> getUserAccounts(Integer userId) {
-        Session session = entityManager.unwrap(Session.class);
-        Filter filter = session.enableFilter("activeAccountFilter");
-        filter.setParameter("isDeleted", false);
-        return accountRepository.findByUserUserId(userId);
+    // ==== 查看用户所有账户（普通用户，读内存概览，不含已注销账户） ====
+    public List<AccountSummaryDTO> getUserAccounts(Integer userId) {
+        return accountSummaryProjection.getUserAccounts(userId);
     }
 
     // ==== 注销或删除账户（设为 CLOSED） ====
+    @Transactional
     public void closeAccount(String accountId, Integer operatorId) {
+        ledgerEngine.ifPresent(engine -> engine.bypass(accountId));
+        // 按行锁下读到的 hot_slots 判断，不依赖本实例可能落后的路由表
+        hotAccountLedger.disableIfHot(accountId);
         Account account = accountRepository.findById(accountId)
                 .orElseThrow(AccountNotFoundException::new);
         account.setStatus(AccountStatus.CLOSED);
@@ -70,10 +89,14 @@ public class AccountService {
         accountRepository.save(account);
         auditLogRepository.save(
                 new AuditLog(null, "CLOSE", accountId, operatorId, LocalDateTime.now()));
+        accountSummaryProjection.refreshAfterCommit(accountId);
+        accountCache.invalidateAfterCommit(accountId);
     }
 
     // ==== 管理员冻结账户 ====
+    @Transactional
     public void freezeAccount(String accountId, Integer operatorId) {
+        ledgerEngine.ifPresent(engine -> engine.bypass(accountId));
         Account account = accountRepository.findById(accountId)
                 .orElseThrow(AccountNotFoundException::new);
 
@@ -82,10 +105,14 @@ public class AccountService {
 
         auditLogRepository.save(
                 new AuditLog(null, "FREEZE", accountId, operatorId, LocalDateTime.now()));
+        accountSummaryProjection.refreshAfterCommit(accountId);
+        accountCache.invalidateAfterCommit(accountId);
     }
 
     // ==== 管理员解冻账户 ====
+    @Transactional
     public void unfreezeAccount(String accountId, Integer operatorId) {
+        ledgerEngine.ifPresent(engine -> engine.bypass(accountId));
         Account account = accountRepository.findById(accountId)
                 .orElseThrow(AccountNotFoundException::new);
 
@@ -94,10 +121,41 @@ public class AccountService {
 
         auditLogRepository.save(
                 new AuditLog(null, "UNFREEZE", accountId, operatorId, LocalDateTime.now()));
+        accountSummaryProjection.refreshAfterCommit(accountId);
+        accountCache.invalidateAfterCommit(accountId);
+    }
+
+    // ==== 管理员开启 / 调整热点分槽 ====
+    @Transactional
+    public BigDecimal enableHotMode(String accountId, int slots, Integer operatorId) {
+        if (slots < 1 || slots > MAX_HOT_SLOTS) {
+            throw new BusinessException("分槽数须在 1 到 " + MAX_HOT_SLOTS + " 之间");
+        }
+        ledgerEngine.ifPresent(engine -> engine.bypass(accountId));
+        BigDecimal balance = hotAccountLedger.enable(accountId, slots);
+        auditLogRepository.save(
+                new AuditLog(null, "HOT_ON", accountId, operatorId, LocalDateTime.now()));
+        accountSummaryProjection.refreshAfterCommit(accountId);
+        accountCache.invalidateAfterCommit(accountId);
+        return balance;
+    }
+
+    // ==== 管理员关闭热点分槽 ====
+    @Transactional
+    public BigDecimal disableHotMode(String accountId, Integer operatorId) {
+        ledgerEngine.ifPresent(engine -> engine.bypass(accountId));
+        BigDecimal balance = hotAccountLedger.disable(accountId);
+        auditLogRepository.save(
+                new AuditLog(null, "HOT_OFF", accountId, operatorId, LocalDateTime.now()));
+        accountSummaryProjection.refreshAfterCommit(accountId);
+        accountCache.invalidateAfterCommit(accountId);
+        return balance;
     }
 
     // ==== 恢复账户（设为 ACTIVE） ====
+    @Transactional
     public Account restoreAccount(String accountId, Integer operatorId) {
+        ledgerEngine.ifPresent(engine -> engine.bypass(accountId));
         Account account = accountRepository.findById(accountId)
                 .orElseThrow(AccountNotFoundException::new);
         account.setStatus(AccountStatus.ACTIVE);
@@ -105,6 +163,8 @@ public class AccountService {
         accountRepository.save(account);
         auditLogRepository.save(
                 new AuditLog(null, "RESTORE", accountId, operatorId, LocalDateTime.now()));
+        accountSummaryProjection.refreshAfterCommit(accountId);
+        accountCache.invalidateAfterCommit(accountId);
         return account;
     }
 
@@ -0,0 +1,55 @@
+package com.bank.customer.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.springframework.stereotype.Service;
+
+import com.bank.customer.component.AccountCache;
+import com.bank.customer.component.AccountCache.CachedAccount;
+import com.bank.customer.entity.BalanceSnapshot;
+import com.bank.customer.exception.AccountNotFoundException;
+import com.bank.customer.repository.BalanceSnapshotRepository;
+import com.bank.customer.repository.TransactionRepository;
+
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+public class BalanceHistoryService {
+    private final BalanceSnapshotRepository snapshotRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountCache accountCache;
+
+    // ==== 查询指定日期日终余额 ====
+    // 读取该日或之前最近的一份快照，再补上快照之后到该日日终的净流入
+    // 快照任务正常运行时最多补一天的流水
+    public BigDecimal getBalanceAsOf(String accountId, LocalDate date) {
+        LocalDateTime dayEnd = date.plusDays(1).atStartOfDay();
+        return snapshotRepository
+                .findFirstByAccountIdAndSnapshotDateLessThanEqualOrderBySnapshotDateDesc(accountId, date)
+                .map(snapshot -> applyFlowsAfter(snapshot, dayEnd))
+                .orElseGet(() -> rollBackFromCurrent(accountId, dayEnd));
+    }
+
+    private BigDecimal applyFlowsAfter(BalanceSnapshot snapshot, LocalDateTime dayEnd) {
+        LocalDateTime snapshotEnd = snapshot.getSnapshotDate().plusDays(1).atStartOfDay();
+        if (!snapshotEnd.isBefore(dayEnd)) {
+            return snapshot.getClosingBalance();
+        }
+        return snapshot.getClosingBalance().add(
+                transactionRepository.sumNetFlow(snapshot.getAccountId(), snapshotEnd, dayEnd));
+    }
+
+    // 尚无快照（如新开户）：当前余额减去该日之后的净流入
+    private BigDecimal rollBackFromCurrent(String accountId, LocalDateTime dayEnd) {
+        CachedAccount account = accountCache.findById(accountId)
+                .orElseThrow(AccountNotFoundException::new);
+        if (!account.createdAt().isBefore(dayEnd)) {
+            return BigDecimal.ZERO;
+        }
+        return accountCache.getBalance(accountId).subtract(
+                transactionRepository.sumNetFlow(accountId, dayEnd, LocalDateTime.now().plusDays(1)));
+    }
+}
@@ -0,0 +1,285 @@
+package com.bank.customer.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bank.customer.component.HotAccountLedger;
+import com.bank.customer.component.StripedLedgerEngine;
+import com.bank.customer.component.TransactionBatchWriter;
+import com.bank.customer.component.VelocityGuard;
+import com.bank.customer.dto.TransferRequestDTO;
+import com.bank.customer.dto.TransferResultDTO;
+import com.bank.customer.entity.Account;
+import com.bank.customer.entity.AccountStatus;
+import com.bank.customer.entity.Transaction;
+import com.bank.customer.event.LedgerOutbox;
+import com.bank.customer.exception.BusinessException;
+import com.bank.customer.exception.InsufficientBalanceException;
+import com.bank.customer.repository.AccountRepository;
+
+/**
+ * 批量转账（代发工资等场景）
+ * 一次性批量校验账户，再按块在独立事务中锁定账户、内存内逐笔扣减，
+ * 最后用 JDBC 批量更新余额并插入交易记录；每笔返回独立结果。
+ * 启用频率限制时逐笔按转出账户计入，超限的一笔单独失败，不影响同块其他转账。
+ */
+@Service
+public class BatchTransferService {
+    // SQL Server 单条语句参数上限为 2100
+    private static final int IN_CLAUSE_LIMIT = 2000;
+
+    private static final String LOCK_ACCOUNTS_SQL =
+            "SELECT account_id, balance, status, hot_slots FROM account WITH (UPDLOCK, ROWLOCK) "
+                    + "WHERE account_id IN (:ids) ORDER BY account_id";
+    private static final String UPDATE_BALANCE_SQL =
+            "UPDATE account SET balance = balance + ? WHERE account_id = ?";
+
+    private final AccountRepository accountRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionBatchWriter transactionWriter;
+    private final LedgerOutbox ledgerOutbox;
+    private final HotAccountLedger hotAccountLedger;
+    private final TransactionTemplate transactionTemplate;
+    private final Optional<StripedLedgerEngine> ledgerEngine;
+    // 转出账户交易频率限制（bank.velocity.enabled=true 时存在）
+    private final Optional<VelocityGuard> velocityGuard;
+    private final int chunkSize;
+
+    public BatchTransferService(
+            AccountRepository accountRepository,
+            JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedJdbcTemplate,
+            TransactionBatchWriter transactionWriter,
+            LedgerOutbox ledgerOutbox,
+            HotAccountLedger hotAccountLedger,
+            PlatformTransactionManager transactionManager,
+            Optional<StripedLedgerEngine> ledgerEngine,
+            Optional<VelocityGuard> velocityGuard,
+            @Value("${bank.transfer.batch.chunk-size:500}") int chunkSize) {
+        this.accountRepository = accountRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionWriter = transactionWriter;
+        this.ledgerOutbox = ledgerOutbox;
+        this.hotAccountLedger = hotAccountLedger;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ledgerEngine = ledgerEngine;
+        this.velocityGuard = velocityGuard;
+        this.chunkSize = chunkSize;
+    }
+
+    // ==== 批量转账 ====
+    public List<TransferResultDTO> transferAll(List<TransferRequestDTO> requests) {
+        TransferResultDTO[] results = new TransferResultDTO[requests.size()];
+
+        // 1. 批量加载涉及的账户，一次性做存在性与状态校验
+        Set<String> accountIds = new TreeSet<>();
+        for (TransferRequestDTO request : requests) {
+            if (request.fromAccountId() != null) {
+                accountIds.add(request.fromAccountId());
+            }
+            if (request.toAccountId() != null) {
+                accountIds.add(request.toAccountId());
+            }
+        }
+        Map<String, AccountStatus> statuses = loadStatuses(accountIds);
+
+        List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String error = validate(requests.get(i), statuses);
+            if (error != null) {
+                results[i] = TransferResultDTO.failed(i, requests.get(i), error);
+            } else {
+                valid.add(i);
+            }
+        }
+
+        // 2. 按块执行，每块一个事务
+        for (int start = 0; start < valid.size(); start += chunkSize) {
+            List<Integer> chunk = valid.subList(start, Math.min(start + chunkSize, valid.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> executeChunk(requests, chunk, results));
+            } catch (RuntimeException e) {
+                for (int i : chunk) {
+                    results[i] = TransferResultDTO.failed(i, requests.get(i), "批次执行失败: " + e.getMessage());
+                }
+            }
+        }
+        return List.of(results);
+    }
+
+    /**
+     * 流式批量转账：按块从迭代器读取请求并逐块执行，内存中只保留一块请求
+     * 结果按请求在流中的序号编号。某条请求无法读取时，已读取的请求照常执行，
+     * 该序号记一条失败结果后停止读取，其后的请求均未执行。
+     */
+    public List<TransferResultDTO> transferAll(Iterator<TransferRequestDTO> requests) {
+        List<TransferResultDTO> results = new ArrayList<>();
+        List<TransferRequestDTO> chunk = new ArrayList<>(chunkSize);
+        while (true) {
+            String unreadable = null;
+            try {
+                while (chunk.size() < chunkSize && requests.hasNext()) {
+                    chunk.add(requests.next());
+                }
+            } catch (RuntimeException e) {
+                unreadable = "请求格式错误，后续请求未执行: " + e.getMessage();
+            }
+            int offset = results.size();
+            for (TransferResultDTO result : transferAll(chunk)) {
+                results.add(result.withIndex(offset + result.index()));
+            }
+            if (unreadable != null) {
+                results.add(TransferResultDTO.unreadable(results.size(), unreadable));
+                return results;
+            }
+            if (chunk.size() < chunkSize) {
+                return results;
+            }
+            chunk.clear();
+        }
+    }
+
+    private Map<String, AccountStatus> loadStatuses(Set<String> accountIds) {
+        Map<String, AccountStatus> statuses = new HashMap<>();
+        List<String> ids = new ArrayList<>(accountIds);
+        for (int start = 0; start < ids.size(); start += IN_CLAUSE_LIMIT) {
+            List<String> slice = ids.subList(start, Math.min(start + IN_CLAUSE_LIMIT, ids.size()));
+            for (Account account : accountRepository.findAllById(slice)) {
+                statuses.put(account.getAccountId(), account.getStatus());
+            }
+        }
+        return statuses;
+    }
+
+    private String validate(TransferRequestDTO request, Map<String, AccountStatus> statuses) {
+        if (request.amount() == null || request.amount().signum() <= 0) {
+            return "转账金额必须大于0";
+        }
+        if (request.fromAccountId() == null || request.fromAccountId().equals(request.toAccountId())) {
+            return "转出与转入账户不能相同";
+        }
+        AccountStatus fromStatus = statuses.get(request.fromAccountId());
+        if (fromStatus == null) {
+            return "转出账户不存在";
+        }
+        AccountStatus toStatus = statuses.get(request.toAccountId());
+        if (toStatus == null) {
+            return "转入账户不存在";
+        }
+        if (fromStatus != AccountStatus.ACTIVE || toStatus != AccountStatus.ACTIVE) {
+            return "账户状态异常";
+        }
+        return null;
+    }
+
+    // 在当前事务中执行一个块：锁定账户 → 内存逐笔记账 → 批量写库
+    private void executeChunk(List<TransferRequestDTO> requests, List<Integer> chunk, TransferResultDTO[] results) {
+        Set<String> ids = new TreeSet<>();
+        for (int i : chunk) {
+            ids.add(requests.get(i).fromAccountId());
+            ids.add(requests.get(i).toAccountId());
+        }
+        // 直接改库，本事务结束前这些账户由记账引擎让出
+        ledgerEngine.ifPresent(engine -> engine.bypass(ids));
+        Map<String, BigDecimal> balances = new HashMap<>();
+        Map<String, String> statuses = new HashMap<>();
+        Set<String> hotAccounts = new TreeSet<>();
+        namedJdbcTemplate.query(LOCK_ACCOUNTS_SQL, Map.of("ids", ids), rs -> {
+            balances.put(rs.getString("account_id"), rs.getBigDecimal("balance"));
+            statuses.put(rs.getString("account_id"), rs.getString("status"));
+            if (rs.getInt("hot_slots") > 0) {
+                hotAccounts.add(rs.getString("account_id"));
+            }
+        });
+
+        Map<String, BigDecimal> deltas = new TreeMap<>();
+        List<Transaction> transactions = new ArrayList<>(chunk.size());
+        LocalDateTime time = LocalDateTime.now();
+        for (int i : chunk) {
+            TransferRequestDTO request = requests.get(i);
+            String from = request.fromAccountId();
+            String to = request.toAccountId();
+            if (!AccountStatus.ACTIVE.name().equals(statuses.get(from))
+                    || !AccountStatus.ACTIVE.name().equals(statuses.get(to))) {
+                results[i] = TransferResultDTO.failed(i, request, "账户状态异常");
+                continue;
+            }
+            // 分槽账户的余额不在主行上，逐笔走分槽记账；其余账户在内存中合并
+            // 扣款成功后才计入频率限制，超限的一笔撤销扣款；块事务回滚时计入一并撤销
+            if (hotAccounts.contains(from)) {
+                try {
+                    hotAccountLedger.debit(from, request.amount());
+                } catch (InsufficientBalanceException e) {
+                    results[i] = TransferResultDTO.failed(i, request, "账户余额不足");
+                    continue;
+                }
+                String rejected = acquireVelocity(from, request.amount());
+                if (rejected != null) {
+                    hotAccountLedger.credit(from, request.amount());
+                    results[i] = TransferResultDTO.failed(i, request, rejected);
+                    continue;
+                }
+            } else if (balances.get(from).compareTo(request.amount()) < 0) {
+                results[i] = TransferResultDTO.failed(i, request, "账户余额不足");
+                continue;
+            } else {
+                String rejected = acquireVelocity(from, request.amount());
+                if (rejected != null) {
+                    results[i] = TransferResultDTO.failed(i, request, rejected);
+                    continue;
+                }
+                balances.merge(from, request.amount().negate(), BigDecimal::add);
+                deltas.merge(from, request.amount().negate(), BigDecimal::add);
+            }
+            if (hotAccounts.contains(to)) {
+                hotAccountLedger.credit(to, request.amount());
+            } else {
+                balances.merge(to, request.amount(), BigDecimal::add);
+                deltas.merge(to, request.amount(), BigDecimal::add);
+            }
+            transactions.add(new Transaction(null, from, to, request.amount(), "transfer", time, null));
+            results[i] = TransferResultDTO.success(i, request);
+        }
+
+        List<Object[]> balanceArgs = new ArrayList<>(deltas.size());
+        deltas.forEach((accountId, delta) -> {
+            if (delta.signum() != 0) {
+                balanceArgs.add(new Object[] { delta, accountId });
+            }
+        });
+        jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, balanceArgs);
+        transactionWriter.insertAll(transactions);
+        ledgerOutbox.recordAll(transactions);
+    }
+
+    // 按转出账户计入频率限制，超限时返回失败原因
+    private String acquireVelocity(String accountId, BigDecimal amount) {
+        if (velocityGuard.isEmpty()) {
+            return null;
+        }
+        try {
+            velocityGuard.get().acquire(accountId, amount);
+            return null;
+        } catch (BusinessException e) {
+            return e.getMessage();
+        }
+    }
+}
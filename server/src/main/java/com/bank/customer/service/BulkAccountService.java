@@ -0,0 +1,133 @@
+package com.bank.customer.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bank.customer.component.AccountIdAllocator;
+import com.bank.customer.component.AccountSummaryProjection;
+import com.bank.customer.dto.AccountOpenRequestDTO;
+import com.bank.customer.dto.AccountOpenResultDTO;
+
+/**
+ * 批量开户（企业客户代开户等场景）
+ * 一次 IN 查询校验全部用户，再按块在独立事务中分配账号并 JDBC 批量插入；
+ * 每块提交后立即回调该块的结果，调用方可边处理边返回。
+ */
+@Service
+public class BulkAccountService {
+    // SQL Server 单条语句参数上限为 2100
+    private static final int IN_CLAUSE_LIMIT = 2000;
+    private static final Set<String> ACCOUNT_TYPES = Set.of("savings", "checking");
+
+    private static final String EXISTING_USERS_SQL =
+            "SELECT user_id FROM [user] WHERE user_id IN (:ids)";
+    private static final String INSERT_ACCOUNT_SQL =
+            "INSERT INTO account (account_id, user_id, account_type, balance, status, created_at, hot_slots) "
+                    + "VALUES (?, ?, ?, 0, 'ACTIVE', ?, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final AccountIdAllocator accountIdAllocator;
+    private final AccountSummaryProjection accountSummaryProjection;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public BulkAccountService(
+            JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedJdbcTemplate,
+            AccountIdAllocator accountIdAllocator,
+            AccountSummaryProjection accountSummaryProjection,
+            PlatformTransactionManager transactionManager,
+            @Value("${bank.account.bulk-open.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.accountIdAllocator = accountIdAllocator;
+        this.accountSummaryProjection = accountSummaryProjection;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 批量开户
+     * @param requests 开户请求
+     * @param sink 结果回调：校验失败项先返回，之后按块在提交后返回
+     */
+    public void openAll(List<AccountOpenRequestDTO> requests, Consumer<AccountOpenResultDTO> sink) {
+        // 1. 一次性校验用户存在性与账户类型
+        Set<Integer> userIds = new HashSet<>();
+        for (AccountOpenRequestDTO request : requests) {
+            if (request.userId() != null) {
+                userIds.add(request.userId());
+            }
+        }
+        Set<Integer> existing = loadExistingUsers(userIds);
+
+        List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            AccountOpenRequestDTO request = requests.get(i);
+            if (request.userId() == null || !existing.contains(request.userId())) {
+                sink.accept(AccountOpenResultDTO.failed(i, request, "用户不存在"));
+            } else if (!ACCOUNT_TYPES.contains(request.accountType())) {
+                sink.accept(AccountOpenResultDTO.failed(i, request, "账户类型无效"));
+            } else {
+                valid.add(i);
+            }
+        }
+
+        // 2. 按块开户，每块一个事务
+        for (int start = 0; start < valid.size(); start += chunkSize) {
+            List<Integer> chunk = valid.subList(start, Math.min(start + chunkSize, valid.size()));
+            List<AccountOpenResultDTO> results;
+            try {
+                results = transactionTemplate.execute(status -> openChunk(requests, chunk));
+            } catch (RuntimeException e) {
+                results = new ArrayList<>(chunk.size());
+                for (int i : chunk) {
+                    results.add(AccountOpenResultDTO.failed(i, requests.get(i), "批次执行失败: " + e.getMessage()));
+                }
+            }
+            results.forEach(sink);
+        }
+    }
+
+    private Set<Integer> loadExistingUsers(Set<Integer> userIds) {
+        Set<Integer> existing = new HashSet<>();
+        List<Integer> ids = new ArrayList<>(userIds);
+        for (int start = 0; start < ids.size(); start += IN_CLAUSE_LIMIT) {
+            List<Integer> slice = ids.subList(start, Math.min(start + IN_CLAUSE_LIMIT, ids.size()));
+            existing.addAll(namedJdbcTemplate.queryForList(EXISTING_USERS_SQL, Map.of("ids", slice), Integer.class));
+        }
+        return existing;
+    }
+
+    // 在当前事务中执行一个块：整块预留账号 → 批量插入
+    private List<AccountOpenResultDTO> openChunk(List<AccountOpenRequestDTO> requests, List<Integer> chunk) {
+        List<String> accountIds = accountIdAllocator.next(chunk.size());
+        LocalDateTime createdAt = LocalDateTime.now();
+        Timestamp now = Timestamp.valueOf(createdAt);
+        List<Object[]> args = new ArrayList<>(chunk.size());
+        List<AccountOpenResultDTO> results = new ArrayList<>(chunk.size());
+        for (int k = 0; k < chunk.size(); k++) {
+            int i = chunk.get(k);
+            AccountOpenRequestDTO request = requests.get(i);
+            args.add(new Object[] { accountIds.get(k), request.userId(), request.accountType(), now });
+            results.add(AccountOpenResultDTO.success(i, request, accountIds.get(k), createdAt));
+        }
+        jdbcTemplate.batchUpdate(INSERT_ACCOUNT_SQL, args);
+        accountSummaryProjection.refreshAfterCommit(accountIds);
+        return results;
+    }
+}
@@ -2,11 +2,19 @@ package com.bank.customer.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.bank.customer.component.AccountCache;
 import com.bank.customer.component.LoanCalculator;
+import com.bank.customer.dto.LoanRepaymentDTO;
 import com.bank.customer.entity.Account;
 import com.bank.customer.entity.AccountStatus;
 import com.bank.customer.entity.LoanApplication;
@@ -20,15 +28,37 @@ import com.bank.customer.repository.AccountRepository;
 import com.bank.customer.repository.LoanApplicationRepository;
 import com.bank.customer.repository.LoanRepaymentRepository;
 
-import lombok.RequiredArgsConstructor;
-
+/**
+ * 贷款服务
+ * 还款计划有两种模式（审批时按 bank.loan.schedule-mode 确定，之后不变）：
+ * EAGER 审批时写入全部期次；LAZY 只保存已还或单独调整过的期次，
+ * 其余期次在查询与还款时由 LoanCalculator 按贷款参数即时计算。
+ * 默认 EAGER（与 loan_application.schedule_mode 列默认值一致），LAZY 需显式开启。
+ */
 @Service
-@RequiredArgsConstructor
 public class LoanService {
     private final LoanApplicationRepository loanAppRepo;
     private final LoanRepaymentRepository repaymentRepo;
     private final AccountRepository accountRepo;
+    private final AccountCache accountCache;
     private final LoanCalculator loanCalculator;
+    private final LoanApplication.ScheduleMode scheduleMode;
+
+    public LoanService(
+        LoanApplicationRepository loanAppRepo,
+        LoanRepaymentRepository repaymentRepo,
+        AccountRepository accountRepo,
+        AccountCache accountCache,
+        LoanCalculator loanCalculator,
+        @Value("${bank.loan.schedule-mode:eager}") String scheduleMode
+    ) {
+        this.loanAppRepo = loanAppRepo;
+        this.repaymentRepo = repaymentRepo;
+        this.accountRepo = accountRepo;
+        this.accountCache = accountCache;
+        this.loanCalculator = loanCalculator;
+        this.scheduleMode = LoanApplication.ScheduleMode.valueOf(scheduleMode.trim().toUpperCase());
+    }
 
     // ==== 申请贷款 ====
     public LoanApplication applyLoan(
@@ -39,13 +69,15 @@ public class LoanService {
         BigDecimal annualRate,
         LocalDate startDate
     ) {
-        Account account = accountRepo.findById(accountId)
+        // 校验账户状态（读账户缓存，不存在或非活跃的账户不再查库）
+        AccountCache.CachedAccount cached = accountCache.findById(accountId)
             .orElseThrow(AccountNotFoundException::new);
-        
-        // 校验账户状态
-        if (account.getStatus() != AccountStatus.ACTIVE) {
+        if (cached.status() != AccountStatus.ACTIVE) {
             throw new AccountStatusException("账户非活跃状态");
         }
+        // 贷款关联账户实体，响应中也包含账户
+        Account account = accountRepo.findById(accountId)
+            .orElseThrow(AccountNotFoundException::new);
 
         // 创建贷款申请
         LoanApplication loan = new LoanApplication();
@@ -65,63 +97,131 @@ public class LoanService {
     }
 
     // ==== 审批贷款 ====
+    @Transactional
     public LoanApplication approveLoan(Long loanId) {
         LoanApplication loan = loanAppRepo.findById(loanId)
             .orElseThrow(LoanNotFoundException::new);
+        // 只有待审批的贷款可以审批，重复审批会重置还款进度并重复生成还款计划
+        if (loan.getStatus() != LoanApplication.LoanStatus.PENDING) {
+            throw new BusinessException("贷款状态不是待审批: " + loan.getStatus());
+        }
         
         // 更新贷款状态
         loan.setStatus(LoanApplication.LoanStatus.APPROVED);
+        loan.setScheduleMode(scheduleMode);
+        loan.setNextDueDate(loan.getStartDate().plusMonths(1));
+        loan.setPaidCount(0);
+        loan.setPendingCount(loan.getTerm());
         
-        // 生成还款计划
-        List<LoanRepayment> schedule = 
-            loanCalculator.generateRepaymentSchedule(loan);
-        repaymentRepo.saveAll(schedule);
+        // 生成还款计划（LAZY 模式不落库，按需计算）
+        if (scheduleMode == LoanApplication.ScheduleMode.EAGER) {
+            List<LoanRepayment> schedule = 
+                loanCalculator.generateRepaymentSchedule(loan);
+            repaymentRepo.saveAll(schedule);
+        }
         
         return loanAppRepo.save(loan);
     }
 
     // ==== 还款 ====
-    public LoanRepayment repay(Long loanId, LocalDate repaymentDate) {
-        LoanRepayment repayment = repaymentRepo
-            .findByLoan_LoanIdAndRepaymentDate(loanId, repaymentDate)
-            .orElseThrow(RepaymentNotFoundException::new);
-        
-        // 校验状态
-        if (repayment.getStatus() == LoanRepayment.RepaymentStatus.PAID) {
-            throw new BusinessException("该期贷款已还清");
-        }
+    // 一次加锁读取定位贷款与该期，随后两次写入：期次标记已还（或 LAZY 下插入），贷款计数原子更新。
+    // 两次写入是下限：期次与贷款是两张表的两行，贷款计数的条件更新负责拦截重复还款与已结清贷款。
+    @Transactional
+    public LoanRepaymentDTO repay(Long loanId, LocalDate repaymentDate) {
+        LoanApplicationRepository.RepaymentTarget target = loanAppRepo
+            .findRepaymentTarget(loanId, repaymentDate)
+            .orElseThrow(LoanNotFoundException::new);
+        LoanApplication terms = toTerms(target);
 
-        // 更新还款状态
+        LoanRepayment repayment;
+        if (target.getRepaymentId() != null) {
+            // 已落库的期次：条件更新为已还，并发还同一期时只有一方成功
+            if (target.getRepaymentStatus() == LoanRepayment.RepaymentStatus.PAID
+                    || repaymentRepo.markPaid(target.getRepaymentId()) == 0) {
+                throw new BusinessException("该期贷款已还清");
+            }
+            repayment = new LoanRepayment();
+            repayment.setRepaymentId(target.getRepaymentId());
+            repayment.setRepaymentDate(repaymentDate);
+            repayment.setAmount(target.getRepaymentAmount());
+            repayment.setPrincipal(target.getPrincipal());
+            repayment.setInterest(target.getInterest());
+            repayment.setLoan(loanAppRepo.getReferenceById(loanId));
+        } else {
+            // LAZY 模式下未落库的期次：按贷款参数计算后以已还状态写入，(loan_id, repayment_date) 唯一
+            repayment = computeRepayment(terms, repaymentDate);
+            repayment.setLoan(loanAppRepo.getReferenceById(loanId));
+            repayment.setStatus(LoanRepayment.RepaymentStatus.PAID);
+            try {
+                repaymentRepo.saveAndFlush(repayment);
+            } catch (DataIntegrityViolationException e) {
+                throw new BusinessException("该期贷款已还清");
+            }
+        }
         repayment.setStatus(LoanRepayment.RepaymentStatus.PAID);
-        repaymentRepo.save(repayment);
 
-        // 更新贷款剩余本金
-        LoanApplication loan = repayment.getLoan();
-        loan.setRemainingPrincipal(
-            loan.getRemainingPrincipal().subtract(repayment.getPrincipal())
+        // 已还 / 待还期数、剩余本金与下一还款日原子更新，待还归零时关闭贷款
+        int updated = loanAppRepo.recordPaid(
+            loanId,
+            repayment.getPrincipal(),
+            repaymentDate,
+            loanCalculator.nextRepaymentDate(terms, repaymentDate)
         );
-        
-        // 如果所有期数已还清，标记贷款完成
-        if (isLoanCompleted(loan)) {
-            loan.setStatus(LoanApplication.LoanStatus.CLOSED);
+        if (updated == 0) {
+            throw new BusinessException("贷款已还清");
         }
-        
-        loanAppRepo.save(loan);
-        return repayment;
+        return LoanRepaymentDTO.fromEntity(repayment);
     }
 
-    // 检查贷款是否全部还清
-    private boolean isLoanCompleted(LoanApplication loan) {
-        return repaymentRepo.countByLoanAndStatus(
-            loan, LoanRepayment.RepaymentStatus.PENDING
-        ) == 0;
+    // LAZY 模式下未落库的期次：按贷款参数计算，还款日不在计划内则不存在
+    private LoanRepayment computeRepayment(LoanApplication loan, LocalDate repaymentDate) {
+        if (loan.getScheduleMode() != LoanApplication.ScheduleMode.LAZY) {
+            throw new RepaymentNotFoundException();
+        }
+        LoanCalculator.Amortization amortization = amortize(loan);
+        int period = amortization.periodOf(loan, repaymentDate);
+        if (period == 0) {
+            throw new RepaymentNotFoundException();
+        }
+        return amortization.toRepayment(loan, period, repaymentDate);
+    }
+
+    // 还款计算所需的贷款参数（不持久化）
+    private static LoanApplication toTerms(LoanApplicationRepository.RepaymentTarget target) {
+        LoanApplication loan = new LoanApplication();
+        loan.setLoanId(target.getLoanId());
+        loan.setAmount(target.getAmount());
+        loan.setInterestRate(target.getInterestRate());
+        loan.setTerm(target.getTerm());
+        loan.setStartDate(target.getStartDate());
+        loan.setEndDate(target.getEndDate());
+        loan.setScheduleMode(target.getScheduleMode());
+        return loan;
     }
 
     // ==== 查询还款计划 ====
-    @SuppressWarnings("unused")
     public List<LoanRepayment> getRepaymentSchedule(Long loanId) {
         LoanApplication loan = loanAppRepo.findById(loanId)
             .orElseThrow(LoanNotFoundException::new);
-        return repaymentRepo.findByLoan_LoanId(loanId);
+        List<LoanRepayment> stored = repaymentRepo.findByLoan_LoanId(loanId);
+        if (loan.getScheduleMode() != LoanApplication.ScheduleMode.LAZY) {
+            return stored;
+        }
+
+        // 计算全部期次，已落库的期次（已还或调整过）覆盖计算结果
+        Map<LocalDate, LoanRepayment> byDate = new HashMap<>();
+        for (LoanRepayment repayment : stored) {
+            byDate.put(repayment.getRepaymentDate(), repayment);
+        }
+        List<LoanRepayment> schedule = new ArrayList<>(loan.getTerm());
+        for (LoanRepayment computed : amortize(loan).toRepayments(loan)) {
+            LoanRepayment repayment = byDate.get(computed.getRepaymentDate());
+            schedule.add(repayment != null ? repayment : computed);
+        }
+        return schedule;
+    }
+
+    private LoanCalculator.Amortization amortize(LoanApplication loan) {
+        return loanCalculator.amortize(loan.getAmount(), loan.getInterestRate(), loan.getTerm());
     }
 }
\ No newline at end of file
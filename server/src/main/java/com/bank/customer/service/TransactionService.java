@@ -1,94 +1,211 @@
 // server/src/main/java/com/bank/customer/service/TransactionService.java
 package com.bank.customer.service;
 
-import com.bank.customer.entity.Account;
+import com.bank.customer.component.AccountCache;
+import com.bank.customer.component.AccountCache.CachedAccount;
+import com.bank.customer.component.GroupCommitDepositBatcher;
+import com.bank.customer.component.HotAccountLedger;
+import com.bank.customer.component.StripedLedgerEngine;
+import com.bank.customer.component.VelocityGuard;
+import com.bank.customer.dto.TransactionPageDTO;
 import com.bank.customer.entity.AccountStatus;
 import com.bank.customer.entity.Transaction;
+import com.bank.customer.event.LedgerOutbox;
 import com.bank.customer.exception.AccountNotFoundException;
 import com.bank.customer.exception.AccountStatusException;
+import com.bank.customer.exception.BusinessException;
+import com.bank.customer.exception.EngineUnavailableException;
+import com.bank.customer.exception.HotAccountException;
 import com.bank.customer.exception.InsufficientBalanceException;
 import com.bank.customer.repository.AccountRepository;
 import com.bank.customer.repository.TransactionRepository;
-import lombok.RequiredArgsConstructor;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
-@RequiredArgsConstructor
 public class TransactionService {
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final TransactionRepository transactionRepository;
     private final AccountRepository accountRepository;
+    private final LedgerOutbox ledgerOutbox;
+    // 账户只读缓存，记账提交后失效余额
+    private final AccountCache accountCache;
+    // 热点账户分槽记账
+    private final HotAccountLedger hotAccountLedger;
+    // 分段锁内存记账引擎（bank.ledger.engine=striped 时存在）
+    private final Optional<StripedLedgerEngine> ledgerEngine;
+    // 热点账户存款合并提交（bank.deposit.group-commit.enabled=true 时存在）
+    private final Optional<GroupCommitDepositBatcher> depositBatcher;
+    // 转出账户交易频率限制（bank.velocity.enabled=true 时存在）
+    private final Optional<VelocityGuard> velocityGuard;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public TransactionService(
+            TransactionRepository transactionRepository,
+            AccountRepository accountRepository,
+            LedgerOutbox ledgerOutbox,
+            AccountCache accountCache,
+            HotAccountLedger hotAccountLedger,
+            Optional<StripedLedgerEngine> ledgerEngine,
+            Optional<GroupCommitDepositBatcher> depositBatcher,
+            Optional<VelocityGuard> velocityGuard,
+            PlatformTransactionManager transactionManager) {
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.ledgerOutbox = ledgerOutbox;
+        this.accountCache = accountCache;
+        this.hotAccountLedger = hotAccountLedger;
+        this.ledgerEngine = ledgerEngine;
+        this.depositBatcher = depositBatcher;
+        this.velocityGuard = velocityGuard;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     // 存款
     public Transaction deposit(String accountId, Double amount) {
-        Account account = accountRepository.findById(accountId)
-                .orElseThrow(AccountNotFoundException::new);
-        checkAccountActive(account); // 状态校验
-        // 转换为 BigDecimal
         BigDecimal depositAmount = BigDecimal.valueOf(amount);
-        account.setBalance(account.getBalance().add(depositAmount));
-        accountRepository.save(account);
-
-        return transactionRepository.save(
-                new Transaction(
-                        null,
-                        null,
-                        accountId,
-                        depositAmount, // 使用 BigDecimal 类型
-                        "deposit",
-                        LocalDateTime.now(),
-                        null));
+        checkAccountActive(accountId, "转入账户不存在");
+        // 分槽账户优先走分槽记账，不经内存引擎与合并提交
+        if (!joinsCallerTransaction() && !hotAccountLedger.isHot(accountId)) {
+            if (ledgerEngine.isPresent()) {
+                try {
+                    accountCache.invalidateBalanceAfterCommit(accountId);
+                    return ledgerEngine.get().deposit(accountId, depositAmount);
+                } catch (HotAccountException | EngineUnavailableException e) {
+                    // 引擎加载时发现账户已分槽（路由已更新），或引擎已停止受理：改走下方直接改库
+                }
+            } else if (depositBatcher.isPresent()) {
+                // 合并提交在事务之外等待，组长自行开启事务写库
+                Transaction transaction = depositBatcher.get().deposit(accountId, depositAmount);
+                accountCache.invalidateBalanceAfterCommit(accountId);
+                return transaction;
+            }
+        }
+        return transactionTemplate.execute(status -> {
+            accountCache.invalidateBalanceAfterCommit(accountId);
+            // 直接改库在本事务结束前由记账引擎让出账户
+            ledgerEngine.ifPresent(engine -> engine.bypass(accountId));
+            // 条件更新入账，失败时才回查账户
+            credit(accountId, depositAmount);
+
+            return saveAndRecord(
+                    new Transaction(
+                            null,
+                            null,
+                            accountId,
+                            depositAmount, // 使用 BigDecimal 类型
+                            "deposit",
+                            LocalDateTime.now(),
+                            null));
+        });
     }
 
     // 取款方法
     public Transaction withdraw(String accountId, BigDecimal amount) {
-        Account account = accountRepository.findById(accountId)
-                .orElseThrow(AccountNotFoundException::new);
-        checkAccountActive(account); // 状态校验
-        // 检查余额是否足够
-        BigDecimal currentBalance = account.getBalance();
-        if (currentBalance.compareTo(amount) < 0) {
-            throw new InsufficientBalanceException();
+        checkAccountActive(accountId, "转出账户不存在");
+        if (ledgerEngine.isPresent() && !joinsCallerTransaction() && !hotAccountLedger.isHot(accountId)) {
+            // 引擎记账不在事务中，失败时自行撤销频率计入
+            VelocityGuard.Permit permit = acquireVelocity(accountId, amount);
+            try {
+                accountCache.invalidateBalanceAfterCommit(accountId);
+                return ledgerEngine.get().withdraw(accountId, amount);
+            } catch (HotAccountException | EngineUnavailableException e) {
+                // 引擎加载时发现账户已分槽（路由已更新），或引擎已停止受理：改走下方直接改库
+                permit.release();
+            } catch (RuntimeException e) {
+                permit.release();
+                throw e;
+            }
         }
+        return transactionTemplate.execute(status -> {
+            accountCache.invalidateBalanceAfterCommit(accountId);
+            // 直接改库在本事务结束前由记账引擎让出账户
+            ledgerEngine.ifPresent(engine -> engine.bypass(accountId));
+            // 条件更新扣款（余额不足不扣），失败时才回查账户
+            debit(accountId, amount);
+            // 扣款成功后才计入频率限制，事务回滚时撤销
+            acquireVelocity(accountId, amount);
 
-        // 扣除余额
-        account.setBalance(currentBalance.subtract(amount));
-        accountRepository.save(account);
-
-        // 记录交易
-        return transactionRepository.save(
-                new Transaction(
-                        null, // transaction_id (自动生成)
-                        accountId, // from_account_id (取款账户)
-                        null, // to_account_id (无转入账户)
-                        amount,
-                        "withdraw", // 交易类型
-                        LocalDateTime.now(),
-                        null // description
-                ));
+            // 记录交易
+            return saveAndRecord(
+                    new Transaction(
+                            null, // transaction_id (自动生成)
+                            accountId, // from_account_id (取款账户)
+                            null, // to_account_id (无转入账户)
+                            amount,
+                            "withdraw", // 交易类型
+                            LocalDateTime.now(),
+                            null // description
+                    ));
+        });
     }
 
-    // 转账（调用存储过程）
-    public void transfer(String fromAccountId, String toAccountId, Double amount) {
-        // 检查账户是否存在
-        Account fromAccount = accountRepository.findById(fromAccountId)
-                .orElseThrow(() -> new AccountNotFoundException("转出账户不存在"));
-        Account toAccount = accountRepository.findById(toAccountId)
-                .orElseThrow(() -> new AccountNotFoundException("转入账户不存在"));
-        checkAccountActive(fromAccount);
-        checkAccountActive(toAccount);
-        // 检查余额
-        BigDecimal currentBalance = accountRepository.getBalance(fromAccountId);
+    // 转账（条件更新，单事务完成状态校验、余额校验与双边记账）
+    public Transaction transfer(String fromAccountId, String toAccountId, Double amount) {
+        if (fromAccountId.equals(toAccountId)) {
+            throw new BusinessException("转出与转入账户不能相同");
+        }
         BigDecimal transferAmount = BigDecimal.valueOf(amount);
-        if (currentBalance.compareTo(transferAmount) < 0) {
-            throw new InsufficientBalanceException();
+        checkAccountActive(fromAccountId, "转出账户不存在");
+        checkAccountActive(toAccountId, "转入账户不存在");
+        boolean involvesHot = hotAccountLedger.isHot(fromAccountId) || hotAccountLedger.isHot(toAccountId);
+        if (ledgerEngine.isPresent() && !joinsCallerTransaction() && !involvesHot) {
+            // 引擎记账不在事务中，失败时自行撤销频率计入
+            VelocityGuard.Permit permit = acquireVelocity(fromAccountId, transferAmount);
+            try {
+                accountCache.invalidateBalanceAfterCommit(fromAccountId, toAccountId);
+                return ledgerEngine.get().transfer(fromAccountId, toAccountId, transferAmount);
+            } catch (HotAccountException | EngineUnavailableException e) {
+                // 引擎加载时发现账户已分槽（路由已更新），或引擎已停止受理：改走下方直接改库
+                permit.release();
+            } catch (RuntimeException e) {
+                permit.release();
+                throw e;
+            }
         }
-        // 调用存储过程
-        transactionRepository.transferFunds(fromAccountId, toAccountId, transferAmount.doubleValue());
+        return transactionTemplate.execute(status -> {
+            accountCache.invalidateBalanceAfterCommit(fromAccountId, toAccountId);
+            // 直接改库的转账在本事务结束前由记账引擎让出两个账户
+            ledgerEngine.ifPresent(engine -> engine.bypass(fromAccountId, toAccountId));
+            // 按 accountId 顺序加锁，避免相向转账互相死锁
+            if (fromAccountId.compareTo(toAccountId) < 0) {
+                debit(fromAccountId, transferAmount);
+                credit(toAccountId, transferAmount);
+            } else {
+                credit(toAccountId, transferAmount);
+                debit(fromAccountId, transferAmount);
+            }
+            // 双边记账成功后才计入频率限制，事务回滚时撤销
+            acquireVelocity(fromAccountId, transferAmount);
+            return saveAndRecord(
+                    new Transaction(
+                            null,
+                            fromAccountId,
+                            toAccountId,
+                            transferAmount,
+                            "transfer",
+                            LocalDateTime.now(),
+                            null));
+        });
     }
 
     public List<Transaction> getTransactionHistory(String accountId, LocalDate startDate, LocalDate endDate) {
@@ -98,10 +215,102 @@ public class TransactionService {
                 endDate.plusDays(1).atStartOfDay());
     }
 
-    // ==== 状态校验工具方法 ====
-    private void checkAccountActive(Account account) {
-        if (account.getStatus() != AccountStatus.ACTIVE) {
-            throw new AccountStatusException("账户状态异常: " + account.getStatus());
+    // 游标分页查询交易记录（首页不传 afterTime/afterId）
+    public TransactionPageDTO getTransactionPage(
+            String accountId,
+            LocalDate startDate,
+            LocalDate endDate,
+            LocalDateTime afterTime,
+            Integer afterId,
+            int size) {
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        LocalDateTime cursorTime = afterTime != null ? afterTime : startDate.atStartOfDay();
+        // 首页游标取 -1，使起始时刻的记录也能命中 transaction_id > afterId
+        int cursorId = afterTime != null && afterId != null ? afterId : -1;
+        List<Transaction> items = transactionRepository.findPageByAccountAfter(
+                accountId,
+                cursorTime,
+                cursorId,
+                endDate.plusDays(1).atStartOfDay(),
+                limit);
+        return TransactionPageDTO.of(items, limit);
+    }
+
+    // 流式导出交易记录：逐行回调并从持久化上下文中移除，内存占用与区间大小无关
+    @Transactional(readOnly = true)
+    public void streamTransactionHistory(
+            String accountId,
+            LocalDate startDate,
+            LocalDate endDate,
+            Consumer<Transaction> consumer) {
+        try (Stream<Transaction> stream = transactionRepository.streamByAccountAndDateRange(
+                accountId,
+                startDate.atStartOfDay(),
+                endDate.plusDays(1).atStartOfDay())) {
+            stream.forEach(t -> {
+                consumer.accept(t);
+                entityManager.detach(t);
+            });
+        }
+    }
+
+    // 计入转出账户的频率限制，超限抛出 BusinessException；未启用时返回空句柄
+    private VelocityGuard.Permit acquireVelocity(String accountId, BigDecimal amount) {
+        return velocityGuard.map(guard -> guard.acquire(accountId, amount)).orElse(VelocityGuard.Permit.NONE);
+    }
+
+    // 扣款失败时才回查账户，区分不存在 / 状态异常 / 余额不足
+    private void debit(String accountId, BigDecimal amount) {
+        if (hotAccountLedger.isHot(accountId)) {
+            hotAccountLedger.debit(accountId, amount);
+            return;
+        }
+        if (accountRepository.debitIfSufficient(accountId, amount) == 1) {
+            return;
+        }
+        // 路由表可能落后于其他实例的分槽开关，余额已不在主行上：在行锁下复核 hot_slots
+        if (hotAccountLedger.debitIfHot(accountId, amount)) {
+            return;
+        }
+        // 条件更新失败可能是状态刚变：失效后经缓存重新加载
+        accountCache.invalidate(accountId);
+        checkAccountActive(accountId, "转出账户不存在");
+        throw new InsufficientBalanceException();
+    }
+
+    private void credit(String accountId, BigDecimal amount) {
+        if (hotAccountLedger.isHot(accountId)) {
+            hotAccountLedger.credit(accountId, amount);
+            return;
+        }
+        if (accountRepository.creditIfActive(accountId, amount) == 1) {
+            return;
+        }
+        accountCache.invalidate(accountId);
+        checkAccountActive(accountId, "转入账户不存在");
+        // 回查时账户正常（如状态在条件更新后又被改回）：本次未入账，不能当作成功提交
+        throw new IllegalStateException("入账受影响行数异常");
+    }
+
+    // 保存流水并写入发件箱（同一事务）
+    private Transaction saveAndRecord(Transaction transaction) {
+        Transaction saved = transactionRepository.save(transaction);
+        ledgerOutbox.record(saved);
+        return saved;
+    }
+
+    // 调用方已开启事务（如带 Idempotency-Key 的请求）时，记账须随调用方事务一起提交或回滚，
+    // 只能直接改库：内存引擎与合并提交的写入不受调用方事务控制
+    private boolean joinsCallerTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    // ==== 状态校验工具方法（读账户缓存，其他实例的冻结、注销最迟在缓存过期后生效） ====
+    private void checkAccountActive(String accountId, String notFoundMessage) {
+        CachedAccount account = accountCache.findById(accountId)
+                .orElseThrow(() -> new AccountNotFoundException(notFoundMessage));
+        if (account.status() != AccountStatus.ACTIVE) {
+            throw new AccountStatusException("账户状态异常: " + account.status());
         }
     }
 }
\ No newline at end of file
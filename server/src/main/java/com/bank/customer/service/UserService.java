@@ -1,5 +1,6 @@
 package com.bank.customer.service;
 
+import com.bank.customer.component.AccountSummaryProjection;
 import com.bank.customer.entity.User;
 import com.bank.customer.entity.UserRole;
 import com.bank.customer.repository.UserRepository;
@@ -18,6 +19,7 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final UserRoleRepository userRoleRepository;
+    private final AccountSummaryProjection accountSummaryProjection;
 
     // 用户注册
     public User registerUser(User user) {
@@ -45,7 +47,9 @@ public class UserService {
         existing.setFullName(updatedUser.getFullName());
         existing.setEmail(updatedUser.getEmail());
         existing.setPhone(updatedUser.getPhone());
-        return userRepository.save(existing);
+        User saved = userRepository.save(existing);
+        accountSummaryProjection.refreshUser(saved.getUserId());
+        return saved;
     }
 
     public List<User> findAll() {
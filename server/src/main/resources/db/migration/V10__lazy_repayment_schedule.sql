@@ -0,0 +1,4 @@
+-- 还款计划模式：EAGER 审批时写入全部期次；LAZY 只保存已还（或单独调整过）的期次，其余按贷款参数即时计算
+ALTER TABLE loan_application ADD schedule_mode NVARCHAR(10) NOT NULL
+    CONSTRAINT df_loan_application_schedule_mode DEFAULT 'EAGER'
+    CONSTRAINT ck_loan_application_schedule_mode CHECK (schedule_mode IN ('EAGER', 'LAZY'));
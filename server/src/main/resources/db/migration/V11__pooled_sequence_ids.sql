@@ -0,0 +1,63 @@
+-- 还款计划、审计日志改用序列分配主键：Hibernate 按 50 个一段预取（pooled），插入可按 JDBC 批量提交
+-- 序列步长须与实体 @SequenceGenerator 的 allocationSize 一致；起点为现有最大 ID + 50，新段不与旧数据重叠
+-- IDENTITY 属性无法直接去除，表按“改名 → 新建 → 复制 → 删除旧表”重建
+
+-- ==== loan_repayment ====
+BEGIN
+    DECLARE @start NVARCHAR(20) = CAST((SELECT ISNULL(MAX(repayment_id), 0) FROM loan_repayment) + 50 AS NVARCHAR(20));
+    EXEC('CREATE SEQUENCE seq_loan_repayment AS BIGINT START WITH ' + @start + ' INCREMENT BY 50');
+END;
+
+ALTER TABLE loan_repayment DROP CONSTRAINT fk_repayment_loan;
+EXEC sp_rename 'PK_loan_repayment', 'PK_loan_repayment_old', 'OBJECT';
+EXEC sp_rename 'loan_repayment', 'loan_repayment_old';
+
+CREATE TABLE loan_repayment (
+    repayment_id BIGINT NOT NULL
+        CONSTRAINT df_loan_repayment_id DEFAULT (NEXT VALUE FOR seq_loan_repayment)
+        CONSTRAINT PK_loan_repayment PRIMARY KEY CLUSTERED,
+    loan_id BIGINT NOT NULL,
+    repayment_date DATE NOT NULL,
+    amount DECIMAL(15,2) NOT NULL,
+    principal DECIMAL(15,2) NOT NULL,
+    interest DECIMAL(15,2) NOT NULL,
+    status NVARCHAR(20) NOT NULL,
+    CONSTRAINT fk_repayment_loan FOREIGN KEY (loan_id) REFERENCES loan_application(loan_id)
+);
+
+INSERT INTO loan_repayment (repayment_id, loan_id, repayment_date, amount, principal, interest, status)
+SELECT repayment_id, loan_id, repayment_date, amount, principal, interest, status FROM loan_repayment_old;
+
+DROP TABLE loan_repayment_old;
+
+-- 同 V3
+CREATE INDEX ix_loan_repayment_loan_date
+    ON loan_repayment (loan_id, repayment_date)
+    INCLUDE (amount, principal, interest, status);
+
+CREATE INDEX ix_loan_repayment_loan_status
+    ON loan_repayment (loan_id, status);
+
+-- ==== audit_log ====
+BEGIN
+    DECLARE @start NVARCHAR(20) = CAST((SELECT ISNULL(MAX(log_id), 0) FROM audit_log) + 50 AS NVARCHAR(20));
+    EXEC('CREATE SEQUENCE seq_audit_log AS BIGINT START WITH ' + @start + ' INCREMENT BY 50');
+END;
+
+-- 原主键为系统命名，随旧表一起删除，不与新表冲突
+EXEC sp_rename 'audit_log', 'audit_log_old';
+
+CREATE TABLE audit_log (
+    log_id BIGINT NOT NULL
+        CONSTRAINT df_audit_log_id DEFAULT (NEXT VALUE FOR seq_audit_log)
+        CONSTRAINT PK_audit_log PRIMARY KEY CLUSTERED,
+    operation_type VARCHAR(20) NOT NULL,
+    account_id VARCHAR(20) NOT NULL,
+    operator_id INT NOT NULL,
+    operation_time DATETIME NOT NULL
+);
+
+INSERT INTO audit_log (log_id, operation_type, account_id, operator_id, operation_time)
+SELECT log_id, operation_type, account_id, operator_id, operation_time FROM audit_log_old;
+
+DROP TABLE audit_log_old;
@@ -0,0 +1,27 @@
+-- 交易类型增加 loan_repay（贷款自动扣款）
+ALTER TABLE account_transaction DROP CONSTRAINT ck_account_transaction_type;
+
+ALTER TABLE account_transaction ADD CONSTRAINT ck_account_transaction_type
+    CHECK (transaction_type IN ('deposit', 'withdraw', 'transfer', 'interest', 'loan_repay'));
+
+-- 贷款最早一期未还的还款日，已审批贷款按此定位到期期次（LAZY 模式下未到期的期次不落库）
+ALTER TABLE loan_application ADD next_due_date DATE NULL;
+
+-- 回填：EAGER 取最早的待还期次；LAZY 为最后已还期次（无则起始日）的次月，与计划的逐月顺延一致
+UPDATE l SET next_due_date = (
+    SELECT MIN(r.repayment_date) FROM loan_repayment r
+    WHERE r.loan_id = l.loan_id AND r.status = 'PENDING')
+FROM loan_application l
+WHERE l.status = 'APPROVED' AND l.schedule_mode = 'EAGER';
+
+UPDATE l SET next_due_date = DATEADD(MONTH, 1, COALESCE((
+    SELECT MAX(r.repayment_date) FROM loan_repayment r
+    WHERE r.loan_id = l.loan_id AND r.status = 'PAID'), l.start_date))
+FROM loan_application l
+WHERE l.status = 'APPROVED' AND l.schedule_mode = 'LAZY';
+
+-- LoanAutoDebitJob 按 (next_due_date, loan_id) 顺序分块读取到期贷款
+CREATE INDEX ix_loan_application_next_due
+    ON loan_application (next_due_date, loan_id)
+    INCLUDE (account_id)
+    WHERE status = 'APPROVED';
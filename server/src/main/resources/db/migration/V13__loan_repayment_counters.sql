@@ -0,0 +1,21 @@
+-- 贷款已还 / 待还期数，随还款在同一条 UPDATE 中增减；完成判断与下一还款日查询不再统计还款表
+ALTER TABLE loan_application ADD
+    paid_count INT NOT NULL CONSTRAINT df_loan_application_paid_count DEFAULT 0,
+    pending_count INT NOT NULL CONSTRAINT df_loan_application_pending_count DEFAULT 0;
+
+-- 回填：已还按还款表统计；待还 = 期数 - 已还（未审批的贷款没有还款计划，为 0）
+UPDATE l SET
+    paid_count = p.paid,
+    pending_count = CASE WHEN l.status IN ('APPROVED', 'CLOSED') AND l.term > p.paid THEN l.term - p.paid ELSE 0 END
+FROM loan_application l
+CROSS APPLY (SELECT COUNT(*) AS paid FROM loan_repayment r WHERE r.loan_id = l.loan_id AND r.status = 'PAID') p;
+
+ALTER TABLE loan_application ADD CONSTRAINT ck_loan_application_counts
+    CHECK (paid_count >= 0 AND pending_count >= 0);
+
+-- 同一期只能有一条记录：LAZY 模式并发还同一期时，后插入的一方失败
+DROP INDEX ix_loan_repayment_loan_date ON loan_repayment;
+
+CREATE UNIQUE INDEX ix_loan_repayment_loan_date
+    ON loan_repayment (loan_id, repayment_date)
+    INCLUDE (amount, principal, interest, status);
@@ -0,0 +1,17 @@
+-- 幂等键按调用方隔离，并记录请求摘要以拒绝同键不同参数的请求
+-- 旧记录无法归属到调用方，且只保留 24 小时，直接重建
+DROP TABLE idempotency_record;
+
+CREATE TABLE idempotency_record (
+    principal NVARCHAR(100) NOT NULL,
+    idempotency_key NVARCHAR(64) NOT NULL,
+    endpoint NVARCHAR(20) NOT NULL,
+    request_hash CHAR(64) NOT NULL,
+    response_body NVARCHAR(MAX) NOT NULL,
+    created_at DATETIME NOT NULL DEFAULT GETDATE(),
+    CONSTRAINT PK_idempotency_record PRIMARY KEY (principal, idempotency_key)
+);
+
+-- 定时清理按创建时间删除
+CREATE INDEX ix_idempotency_record_created_at
+    ON idempotency_record (created_at);
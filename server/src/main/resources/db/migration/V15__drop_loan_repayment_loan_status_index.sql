@@ -0,0 +1,3 @@
+-- 还款计数改由 loan_application 的 paid_count / pending_count 维护（V13）后，
+-- 已没有按 (loan_id, status) 查询 loan_repayment 的语句，该索引只增加写入开销
+DROP INDEX ix_loan_repayment_loan_status ON loan_repayment;
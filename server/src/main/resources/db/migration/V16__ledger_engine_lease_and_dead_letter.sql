@@ -0,0 +1,28 @@
+-- striped 记账引擎的单实例租约：内存余额只在唯一持有租约的实例上有效
+-- 启动时抢占（无人持有或已过期），运行中定时续期；续期失败的实例停止受理
+CREATE TABLE ledger_engine_lease (
+    id INT PRIMARY KEY,
+    owner NVARCHAR(100) NULL,
+    expires_at DATETIME NOT NULL
+);
+
+INSERT INTO ledger_engine_lease (id, owner, expires_at) VALUES (1, NULL, '1900-01-01');
+
+-- 回写时逐笔确认无法写入的引擎记账（账户不存在、已冻结或注销、约束冲突等），待人工处理
+CREATE TABLE ledger_dead_letter (
+    dead_letter_id BIGINT PRIMARY KEY IDENTITY(1,1),
+    journal_seq BIGINT NOT NULL,
+    from_account_id NVARCHAR(20) NULL,
+    to_account_id NVARCHAR(20) NULL,
+    amount DECIMAL(15,2) NOT NULL,
+    transaction_type NVARCHAR(10) NOT NULL,
+    transaction_time DATETIME NOT NULL,
+    error NVARCHAR(1000) NOT NULL,
+    created_at DATETIME NOT NULL DEFAULT GETDATE(),
+    resolved_at DATETIME NULL
+);
+
+-- 运维按未处理记录查看
+CREATE INDEX ix_ledger_dead_letter_unresolved
+    ON ledger_dead_letter (dead_letter_id)
+    WHERE resolved_at IS NULL;
@@ -0,0 +1,8 @@
+-- 幂等记录表（Idempotency-Key 持久化）
+IF OBJECT_ID('idempotency_record', 'U') IS NULL
+CREATE TABLE idempotency_record (
+    idempotency_key NVARCHAR(64) PRIMARY KEY,
+    endpoint NVARCHAR(20) NOT NULL,
+    response_body NVARCHAR(MAX) NOT NULL,
+    created_at DATETIME NOT NULL DEFAULT GETDATE()
+);
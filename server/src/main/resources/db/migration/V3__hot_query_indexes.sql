@@ -0,0 +1,34 @@
+-- 热点查询索引（聚集键 account_id / transaction_id / repayment_id 会自动带入非聚集索引）
+
+-- TransactionRepository.findByAccountAndDateRange / findPageByAccountAfter / streamByAccountAndDateRange
+-- 转出、转入两路分别按 (账户, 时间, ID) 定位，覆盖整行避免回表
+CREATE INDEX ix_account_transaction_from_time
+    ON account_transaction (from_account_id, transaction_time, transaction_id)
+    INCLUDE (to_account_id, amount, transaction_type, description);
+
+CREATE INDEX ix_account_transaction_to_time
+    ON account_transaction (to_account_id, transaction_time, transaction_id)
+    INCLUDE (from_account_id, amount, transaction_type, description);
+
+-- LoanRepaymentRepository.findByLoan_LoanIdAndRepaymentDate / findByLoan_LoanId
+CREATE INDEX ix_loan_repayment_loan_date
+    ON loan_repayment (loan_id, repayment_date)
+    INCLUDE (amount, principal, interest, status);
+
+-- LoanRepaymentRepository.countByLoanAndStatus
+CREATE INDEX ix_loan_repayment_loan_status
+    ON loan_repayment (loan_id, status);
+
+-- AccountRepository.findByUserUserId
+CREATE INDEX ix_account_user
+    ON account (user_id)
+    INCLUDE (account_type, balance, status, created_at, closed_at);
+
+-- AccountRepository.findByStatus（分页）
+CREATE INDEX ix_account_status
+    ON account (status)
+    INCLUDE (user_id, account_type, balance, created_at, closed_at);
+
+-- LoanApplicationRepository.findByUserUserId
+CREATE INDEX ix_loan_application_user
+    ON loan_application (user_id);
@@ -0,0 +1,14 @@
+-- 账户日终余额快照
+CREATE TABLE account_balance_snapshot (
+    account_id NVARCHAR(20) NOT NULL,
+    snapshot_date DATE NOT NULL,
+    closing_balance DECIMAL(15,2) NOT NULL,
+    created_at DATETIME NOT NULL DEFAULT GETDATE(),
+    PRIMARY KEY (account_id, snapshot_date),
+    FOREIGN KEY (account_id) REFERENCES account(account_id)
+);
+
+-- 按日汇总交易流水（日终快照、对账等按时间区间扫描）
+CREATE INDEX ix_account_transaction_time
+    ON account_transaction (transaction_time)
+    INCLUDE (from_account_id, to_account_id, amount);
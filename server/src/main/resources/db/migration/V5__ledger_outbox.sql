@@ -0,0 +1,13 @@
+-- 记账事件发件箱（与账务变更同一事务写入，由后台中继异步投递）
+CREATE TABLE ledger_outbox (
+    event_id BIGINT PRIMARY KEY IDENTITY(1,1),
+    event_type NVARCHAR(20) NOT NULL,
+    payload NVARCHAR(MAX) NOT NULL,
+    created_at DATETIME NOT NULL DEFAULT GETDATE(),
+    published_at DATETIME NULL
+);
+
+-- 中继按 event_id 顺序拉取未投递事件
+CREATE INDEX ix_ledger_outbox_unpublished
+    ON ledger_outbox (event_id)
+    WHERE published_at IS NULL;
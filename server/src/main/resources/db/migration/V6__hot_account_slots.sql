@@ -0,0 +1,11 @@
+-- 热点账户分槽：hot_slots > 0 的账户余额 = account.balance + 各槽余额之和
+ALTER TABLE account ADD hot_slots INT NOT NULL CONSTRAINT df_account_hot_slots DEFAULT 0;
+
+CREATE TABLE account_balance_slot (
+    account_id NVARCHAR(20) NOT NULL,
+    slot_no INT NOT NULL,
+    balance DECIMAL(15,2) NOT NULL DEFAULT 0.00,
+    PRIMARY KEY (account_id, slot_no),
+    FOREIGN KEY (account_id) REFERENCES account(account_id),
+    CONSTRAINT ck_account_balance_slot_balance CHECK (balance >= 0)
+);
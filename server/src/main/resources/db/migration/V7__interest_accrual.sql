@@ -0,0 +1,19 @@
+-- 交易类型增加 interest（计息入账）；原约束为系统命名，按定义查找后替换
+BEGIN
+    DECLARE @ck SYSNAME;
+    SELECT @ck = name FROM sys.check_constraints
+    WHERE parent_object_id = OBJECT_ID('account_transaction') AND definition LIKE '%transaction_type%';
+    IF @ck IS NOT NULL
+        EXEC('ALTER TABLE account_transaction DROP CONSTRAINT ' + @ck);
+END;
+
+ALTER TABLE account_transaction ADD CONSTRAINT ck_account_transaction_type
+    CHECK (transaction_type IN ('deposit', 'withdraw', 'transfer', 'interest'));
+
+-- 计息任务进度：每个计息日记录已连续完成的最后一个账户
+CREATE TABLE interest_accrual_checkpoint (
+    accrual_date DATE PRIMARY KEY,
+    last_account_id NVARCHAR(20) NOT NULL DEFAULT '',
+    completed BIT NOT NULL DEFAULT 0,
+    updated_at DATETIME NOT NULL DEFAULT GETDATE()
+);
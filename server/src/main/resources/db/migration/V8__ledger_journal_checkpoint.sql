@@ -0,0 +1,7 @@
+-- 记账日志回写进度：数据库已包含序号不大于 applied_seq 的全部日志记录
+CREATE TABLE ledger_journal_checkpoint (
+    id INT PRIMARY KEY,
+    applied_seq BIGINT NOT NULL
+);
+
+INSERT INTO ledger_journal_checkpoint (id, applied_seq) VALUES (1, 0);
@@ -0,0 +1,9 @@
+-- 账号分配高水位：应用按块预留序号（next_value 为下一个未分配的序号），块内在内存中无锁发号
+-- 新账号为 16 位：622588 + 9 位序号 + 1 位 Luhn 校验位，与存储过程生成的 14 位随机账号不会重复
+CREATE TABLE account_number_allocator (
+    id INT PRIMARY KEY,
+    next_value BIGINT NOT NULL,
+    CONSTRAINT ck_account_number_allocator_next_value CHECK (next_value >= 0)
+);
+
+INSERT INTO account_number_allocator (id, next_value) VALUES (1, 0);
@@ -0,0 +1,106 @@
+package com.bank.customer.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import com.bank.customer.component.LoanCalculator.Amortization;
+import com.bank.customer.component.LoanCalculator.LoanTerms;
+import com.bank.customer.entity.LoanApplication;
+import com.bank.customer.entity.LoanRepayment;
+
+/**
+ * 批量等额本息计算：结果与逐笔计算逐分一致，并粗略对比两者耗时（不启动 Spring）
+ * 耗时对比标记为 benchmark，默认构建不运行（-Pbenchmark），结果记入测试报告。
+ * 调价重算时利率、期限取值有限，样本按此生成以体现年金系数复用。
+ */
+class LoanCalculatorBenchmarkTests {
+    private static final int LOANS = 20_000;
+    private static final BigDecimal[] RATES = {
+        new BigDecimal("0.03"), new BigDecimal("0.04"), new BigDecimal("0.05"), new BigDecimal("0.06")
+    };
+    private static final int[] TERMS = { 12, 36, 60, 120, 240, 360 };
+
+    private final LoanCalculator calculator = new LoanCalculator();
+
+    @Test
+    void batchMatchesPerLoanCalculation() {
+        List<LoanTerms> loans = sampleLoans(2_000, new Random(7));
+        List<Amortization> batch = calculator.amortizeAll(loans);
+        for (int i = 0; i < loans.size(); i++) {
+            LoanApplication loan = toApplication(loans.get(i));
+            List<LoanRepayment> expected = calculator.generateRepaymentSchedule(loan);
+            List<LoanRepayment> actual = batch.get(i).toRepayments(loan);
+            assertEquals(loan.getMonthlyPayment(), batch.get(i).monthlyPayment());
+            assertEquals(expected.size(), actual.size());
+            for (int p = 0; p < expected.size(); p++) {
+                assertEquals(expected.get(p).getRepaymentDate(), actual.get(p).getRepaymentDate());
+                assertEquals(expected.get(p).getPrincipal(), actual.get(p).getPrincipal());
+                assertEquals(expected.get(p).getInterest(), actual.get(p).getInterest());
+            }
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void compareBatchWithPerLoanPath(TestReporter reporter) {
+        List<LoanTerms> loans = sampleLoans(LOANS, new Random(11));
+        // 预热
+        perLoan(loans.subList(0, 1_000));
+        calculator.amortizeAll(loans.subList(0, 1_000));
+
+        long start = System.nanoTime();
+        long periods = perLoan(loans);
+        long perLoanMillis = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        List<Amortization> batch = calculator.amortizeAll(loans);
+        long batchMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(periods, batch.stream().mapToLong(Amortization::term).sum());
+        reporter.publishEntry(LOANS + " 笔贷款 / " + periods + " 期",
+                "逐笔 " + perLoanMillis + " ms，批量 " + batchMillis + " ms");
+    }
+
+    // 现有路径：逐笔计算月供并生成实体还款计划
+    private long perLoan(List<LoanTerms> loans) {
+        long periods = 0;
+        for (LoanTerms terms : loans) {
+            periods += calculator.generateRepaymentSchedule(toApplication(terms)).size();
+        }
+        return periods;
+    }
+
+    private LoanApplication toApplication(LoanTerms terms) {
+        LoanApplication loan = new LoanApplication();
+        loan.setAmount(terms.principal());
+        loan.setInterestRate(terms.annualRate());
+        loan.setTerm(terms.term());
+        loan.setStartDate(LocalDate.of(2025, 1, 31));
+        loan.setMonthlyPayment(
+                calculator.calculateMonthlyPayment(terms.principal(), terms.annualRate(), terms.term()));
+        return loan;
+    }
+
+    private static List<LoanTerms> sampleLoans(int count, Random random) {
+        List<LoanTerms> loans = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BigDecimal principal = BigDecimal.valueOf(10_000 + random.nextInt(2_000_000))
+                    .setScale(2, RoundingMode.UNNECESSARY);
+            loans.add(new LoanTerms(
+                    principal,
+                    RATES[random.nextInt(RATES.length)],
+                    TERMS[random.nextInt(TERMS.length)]));
+        }
+        return loans;
+    }
+}
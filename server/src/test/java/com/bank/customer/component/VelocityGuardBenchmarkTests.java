@@ -0,0 +1,68 @@
+package com.bank.customer.component;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import com.bank.customer.exception.BusinessException;
+
+/**
+ * 频率限制的限额行为与单次校验耗时（不启动 Spring，直接构造）
+ * 耗时用例是粗略的微基准：预热后统计平均耗时并记入测试报告，标记为 benchmark，默认构建不运行（-Pbenchmark）。
+ */
+class VelocityGuardBenchmarkTests {
+    private static final int ACCOUNTS = 100_000;
+    private static final int WARMUP = 500_000;
+    private static final int ITERATIONS = 2_000_000;
+
+    @Test
+    void rejectsWhenMinuteCountExceeded() {
+        VelocityGuard guard = newGuard(3, new BigDecimal("1000000"));
+        for (int i = 0; i < 3; i++) {
+            guard.acquire("62258800000001", BigDecimal.ONE);
+        }
+        assertThrows(BusinessException.class, () -> guard.acquire("62258800000001", BigDecimal.ONE));
+        // 其他账户不受影响
+        guard.acquire("62258800000002", BigDecimal.ONE);
+    }
+
+    @Test
+    void rejectsWhenMinuteAmountExceeded() {
+        VelocityGuard guard = newGuard(100, new BigDecimal("500"));
+        guard.acquire("62258800000001", new BigDecimal("300"));
+        assertThrows(BusinessException.class, () -> guard.acquire("62258800000001", new BigDecimal("300")));
+        // 被拒绝的一笔已撤销，剩余额度仍可使用
+        guard.acquire("62258800000001", new BigDecimal("200"));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void measureAcquireLatency(TestReporter reporter) {
+        VelocityGuard guard = newGuard(Integer.MAX_VALUE, new BigDecimal("1000000000"));
+        BigDecimal amount = new BigDecimal("12.34");
+        String[] accountIds = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds[i] = String.valueOf(62258800000000L + i);
+        }
+        for (int i = 0; i < WARMUP; i++) {
+            guard.acquire(accountIds[i % ACCOUNTS], amount);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            guard.acquire(accountIds[i % ACCOUNTS], amount);
+        }
+        long nanosPerCheck = (System.nanoTime() - start) / ITERATIONS;
+        reporter.publishEntry("VelocityGuard.acquire 平均耗时(ns)", String.valueOf(nanosPerCheck));
+    }
+
+    private static VelocityGuard newGuard(int minuteCount, BigDecimal minuteAmount) {
+        return new VelocityGuard(1 << 18,
+                minuteCount, minuteAmount,
+                Integer.MAX_VALUE, new BigDecimal("1000000000"),
+                Integer.MAX_VALUE, new BigDecimal("1000000000"));
+    }
+}
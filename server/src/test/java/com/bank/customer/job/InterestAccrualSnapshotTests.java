@@ -0,0 +1,136 @@
+package com.bank.customer.job;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import com.bank.customer.component.TransactionBatchWriter;
+import com.bank.customer.entity.Transaction;
+import com.bank.customer.event.LedgerOutbox;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 计息与日终快照的衔接：快照任务先于计息执行，计息日之后入账的利息须计入执行当日的快照，
+ * 快照链（前日快照 + 当日净流入）与账户余额保持一致。
+ * 在 H2（MSSQLServer 模式）替身库上运行真实的计息与快照任务。
+ */
+class InterestAccrualSnapshotTests {
+    private static final String ACCOUNT_ID = "62258800000001";
+    // 日利率 0.0001，1000.00 的日利息为 0.10
+    private static final BigDecimal ANNUAL_RATE = new BigDecimal("0.0365");
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO account_transaction (from_account_id, to_account_id, amount, transaction_type, "
+                    + "transaction_time, description) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private JdbcTemplate jdbcTemplate;
+    private BalanceSnapshotJob snapshotJob;
+    private InterestAccrualJob interestJob;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:interest_snapshot;MODE=MSSQLServer;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        new ResourceDatabasePopulator(new ClassPathResource("db/h2/schema.sql")).execute(dataSource);
+
+        NamedParameterJdbcTemplate namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        LedgerOutbox ledgerOutbox = new LedgerOutbox(null, jdbcTemplate, new ObjectMapper().findAndRegisterModules());
+        snapshotJob = new BalanceSnapshotJob(namedJdbcTemplate, null);
+        // 基数均取自快照，不会回退到 BalanceHistoryService
+        interestJob = new InterestAccrualJob(jdbcTemplate, namedJdbcTemplate,
+                new DataSourceTransactionManager(dataSource), null, new RowByRowWriter(jdbcTemplate),
+                ledgerOutbox, Optional.empty(), ANNUAL_RATE, 2000, 2);
+
+        jdbcTemplate.update("INSERT INTO account (account_id, user_id, account_type, balance, status, created_at) "
+                + "VALUES (?, 1, 'savings', 1000.00, 'ACTIVE', ?)",
+                ACCOUNT_ID, Timestamp.valueOf(LocalDate.now().minusDays(10).atStartOfDay()));
+    }
+
+    @Test
+    void snapshotAfterAccrualIncludesInterest() {
+        LocalDate today = LocalDate.now();
+        LocalDate yesterday = today.minusDays(1);
+
+        // 凌晨先生成昨日快照，再为昨日计息
+        snapshotJob.snapshot(yesterday);
+        assertEquals(new BigDecimal("1000.00"), closingBalance(yesterday));
+        interestJob.accrue(yesterday);
+        assertEquals(new BigDecimal("1000.10"), balance());
+
+        // 利息计入执行当日的快照，快照与余额一致
+        snapshotJob.snapshot(today);
+        assertEquals(new BigDecimal("1000.10"), closingBalance(today));
+    }
+
+    @Test
+    void rerunAfterLostCheckpointDoesNotAccrueTwice() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        snapshotJob.snapshot(yesterday);
+        interestJob.accrue(yesterday);
+
+        // 模拟检查点未及推进：按计息日标记识别已入账的利息
+        jdbcTemplate.update("DELETE FROM interest_accrual_checkpoint");
+        interestJob.accrue(yesterday);
+
+        assertEquals(new BigDecimal("1000.10"), balance());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM account_transaction WHERE transaction_type = 'interest'", Integer.class));
+    }
+
+    private BigDecimal closingBalance(LocalDate day) {
+        return jdbcTemplate.queryForObject(
+                "SELECT closing_balance FROM account_balance_snapshot WHERE account_id = ? AND snapshot_date = ?",
+                BigDecimal.class, ACCOUNT_ID, Date.valueOf(day));
+    }
+
+    private BigDecimal balance() {
+        return jdbcTemplate.queryForObject(
+                "SELECT balance FROM account WHERE account_id = ?", BigDecimal.class, ACCOUNT_ID);
+    }
+
+    // H2 不支持 OUTPUT 子句，逐条插入并取回自增主键
+    private static final class RowByRowWriter extends TransactionBatchWriter {
+        private final JdbcTemplate jdbcTemplate;
+
+        RowByRowWriter(JdbcTemplate jdbcTemplate) {
+            super(jdbcTemplate);
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @Override
+        public void insertAll(List<Transaction> transactions) {
+            for (Transaction t : transactions) {
+                KeyHolder keys = new GeneratedKeyHolder();
+                jdbcTemplate.update(con -> {
+                    PreparedStatement ps = con.prepareStatement(INSERT_TRANSACTION_SQL, new String[] { "transaction_id" });
+                    ps.setString(1, t.getFromAccountId());
+                    ps.setString(2, t.getToAccountId());
+                    ps.setBigDecimal(3, t.getAmount());
+                    ps.setString(4, t.getTransactionType());
+                    ps.setTimestamp(5, Timestamp.valueOf(t.getTransactionTime()));
+                    ps.setString(6, t.getDescription());
+                    return ps;
+                }, keys);
+                t.setTransactionId(keys.getKey().intValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.bank.customer.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bank.customer.component.AccountCache;
+import com.bank.customer.component.LoanCalculator;
+import com.bank.customer.repository.AccountRepository;
+import com.bank.customer.repository.LoanApplicationRepository;
+import com.bank.customer.repository.LoanRepaymentRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * EAGER 模式审批 360 期贷款：还款计划经序列预取主键后按 hibernate.jdbc.batch_size 合批插入
+ * 在 H2（MSSQLServer 模式）替身库上运行真实的 LoanService.approveLoan，Hibernate 配置取自 application.properties，
+ * 数据源外包一层统计实际发出的 JDBC 批次与单条执行次数。
+ * 基准用例对比 IDENTITY 主键下逐行插入取回主键（Hibernate 此时无法合批）与序列预取后合批插入的往返次数与耗时，
+ * 标记为 benchmark，默认构建不运行（-Pbenchmark），结果记入测试报告。
+ * 此前还款计划默认 LAZY，审批不写计划，合批插入在默认配置下并未被走到；现已默认 EAGER。
+ */
+class LoanApprovalBatchInsertTests {
+    private static final int TERM = 360;
+    private static final String INSERT_REPAYMENT = "insert into loan_repayment";
+    private static final String INSERT_IDENTITY_REPAYMENT =
+            "insert into loan_repayment_identity (loan_id, repayment_date, amount, principal, interest, status) "
+                    + "values (?, ?, ?, ?, ?, ?)";
+    private static final int WARMUP = 5;
+    private static final int ROUNDS = 20;
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSource countingDataSource;
+    private EntityManagerFactory entityManagerFactory;
+    private TransactionTemplate transactionTemplate;
+    private LoanService loanService;
+    private int batchSize;
+
+    // 发出的语句：executeBatch 每次记一个批次，其余 execute* 每次记一条单条执行
+    private final List<String> batches = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> executions = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:loan_approval;MODE=MSSQLServer;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        new ResourceDatabasePopulator(new ClassPathResource("db/h2/schema.sql")).execute(dataSource);
+
+        Properties application = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+        batchSize = Integer.parseInt(application.getProperty("spring.jpa.properties.hibernate.jdbc.batch_size"));
+
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        countingDataSource = counting(dataSource);
+        factory.setDataSource(countingDataSource);
+        factory.setPackagesToScan("com.bank.customer.entity");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(Map.of(
+                "hibernate.dialect", "org.hibernate.dialect.H2Dialect",
+                "hibernate.hbm2ddl.auto", "none",
+                "hibernate.jdbc.batch_size", String.valueOf(batchSize),
+                "hibernate.order_inserts", application.getProperty("spring.jpa.properties.hibernate.order_inserts"),
+                "hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName(),
+                "hibernate.implicit_naming_strategy", SpringImplicitNamingStrategy.class.getName()));
+        factory.afterPropertiesSet();
+        entityManagerFactory = factory.getObject();
+        transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+
+        JpaRepositoryFactory repositories = new JpaRepositoryFactory(
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory));
+        AccountRepository accountRepository = repositories.getRepository(AccountRepository.class);
+        loanService = new LoanService(
+                repositories.getRepository(LoanApplicationRepository.class),
+                repositories.getRepository(LoanRepaymentRepository.class),
+                accountRepository,
+                new AccountCache(accountRepository, new SimpleMeterRegistry(), 1000, 30),
+                new LoanCalculator(),
+                "eager");
+
+        jdbcTemplate.update("INSERT INTO [user] (username, password_hash, full_name, email, phone) "
+                + "VALUES ('zhangsan', 'x', '张三', 'zhangsan@example.com', '13800000000')");
+        jdbcTemplate.update("INSERT INTO account (account_id, user_id, account_type, balance) "
+                + "VALUES ('62258800000001', 1, 'savings', 0)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        entityManagerFactory.close();
+    }
+
+    @Test
+    void approveInsertsScheduleInJdbcBatches() {
+        long loanId = insertPendingLoan();
+        batches.clear();
+        executions.clear();
+
+        transactionTemplate.execute(status -> loanService.approveLoan(loanId));
+
+        assertEquals(TERM, count("SELECT COUNT(*) FROM loan_repayment WHERE loan_id = ?", loanId));
+        assertEquals((TERM + batchSize - 1) / batchSize, statementsStartingWith(batches, INSERT_REPAYMENT));
+        assertEquals(0, statementsStartingWith(executions, INSERT_REPAYMENT));
+    }
+
+    @Test
+    void prefetchedIdsDoNotOverlapDefaultValues() {
+        long first = insertPendingLoan();
+        transactionTemplate.execute(status -> loanService.approveLoan(first));
+
+        // 绕过 Hibernate 的插入取列默认值，占用的是序列新返回的值，不落在已预取的段内
+        jdbcTemplate.update("INSERT INTO loan_repayment (loan_id, repayment_date, amount, principal, interest, status) "
+                + "VALUES (?, DATE '2025-02-01', 0, 0, 0, 'PENDING')", first);
+        long second = insertPendingLoan();
+        transactionTemplate.execute(status -> loanService.approveLoan(second));
+
+        assertEquals(count("SELECT COUNT(*) FROM loan_repayment"),
+                count("SELECT COUNT(DISTINCT repayment_id) FROM loan_repayment"));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void compareIdentityWithPooledSequence(TestReporter reporter) {
+        // 基线：与 loan_repayment 同列、主键为 IDENTITY 的对照表，按 IDENTITY 下 Hibernate 的做法逐行插入并取回主键
+        jdbcTemplate.execute("CREATE TABLE loan_repayment_identity (repayment_id BIGINT PRIMARY KEY IDENTITY(1,1), "
+                + "loan_id BIGINT NOT NULL, repayment_date DATE NOT NULL, amount DECIMAL(15,2) NOT NULL, "
+                + "principal DECIMAL(15,2) NOT NULL, interest DECIMAL(15,2) NOT NULL, status NVARCHAR(20) NOT NULL)");
+        long template = insertPendingLoan();
+        transactionTemplate.execute(status -> loanService.approveLoan(template));
+        List<Map<String, Object>> schedule = jdbcTemplate.queryForList(
+                "SELECT loan_id, repayment_date, amount, principal, interest, status FROM loan_repayment "
+                        + "WHERE loan_id = ? ORDER BY repayment_date", template);
+
+        for (int i = 0; i < WARMUP; i++) {
+            insertOneByOne(schedule);
+            long loanId = insertPendingLoan();
+            transactionTemplate.execute(status -> loanService.approveLoan(loanId));
+        }
+
+        batches.clear();
+        executions.clear();
+        long identityNanos = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            insertOneByOne(schedule);
+            identityNanos += System.nanoTime() - start;
+        }
+        long identityRoundTrips = statementsStartingWith(executions, "insert into loan_repayment_identity")
+                + statementsStartingWith(batches, "insert into loan_repayment_identity");
+
+        List<Long> loanIds = new ArrayList<>(ROUNDS);
+        for (int i = 0; i < ROUNDS; i++) {
+            loanIds.add(insertPendingLoan());
+        }
+        batches.clear();
+        executions.clear();
+        long pooledNanos = 0;
+        for (long loanId : loanIds) {
+            long start = System.nanoTime();
+            transactionTemplate.execute(status -> loanService.approveLoan(loanId));
+            pooledNanos += System.nanoTime() - start;
+        }
+        long pooledRoundTrips = statementsStartingWith(batches, INSERT_REPAYMENT)
+                + statementsStartingWith(executions, INSERT_REPAYMENT);
+        long pooledStatements = batches.size() + executions.size();
+
+        assertEquals(TERM, identityRoundTrips / ROUNDS);
+        reporter.publishEntry("IDENTITY 逐行插入 " + TERM + " 期：插入往返次数", String.valueOf(identityRoundTrips / ROUNDS));
+        reporter.publishEntry("IDENTITY 逐行插入 " + TERM + " 期：平均耗时(ms，仅插入)",
+                String.format("%.2f", identityNanos / 1e6 / ROUNDS));
+        reporter.publishEntry("序列预取合批审批 " + TERM + " 期：插入往返次数", String.valueOf(pooledRoundTrips / ROUNDS));
+        reporter.publishEntry("序列预取合批审批 " + TERM + " 期：全部语句往返次数", String.valueOf(pooledStatements / ROUNDS));
+        reporter.publishEntry("序列预取合批审批 " + TERM + " 期：平均耗时(ms，整个审批事务)",
+                String.format("%.2f", pooledNanos / 1e6 / ROUNDS));
+    }
+
+    // 单个事务内逐行插入，每行执行一次并取回生成的主键
+    private void insertOneByOne(List<Map<String, Object>> schedule) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Connection connection = DataSourceUtils.getConnection(countingDataSource);
+            try (PreparedStatement statement =
+                    connection.prepareStatement(INSERT_IDENTITY_REPAYMENT, Statement.RETURN_GENERATED_KEYS)) {
+                for (Map<String, Object> row : schedule) {
+                    statement.setObject(1, row.get("loan_id"));
+                    statement.setObject(2, row.get("repayment_date"));
+                    statement.setObject(3, row.get("amount"));
+                    statement.setObject(4, row.get("principal"));
+                    statement.setObject(5, row.get("interest"));
+                    statement.setObject(6, row.get("status"));
+                    statement.executeUpdate();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        keys.next();
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                DataSourceUtils.releaseConnection(connection, countingDataSource);
+            }
+        });
+    }
+
+    private long insertPendingLoan() {
+        LoanCalculator calculator = new LoanCalculator();
+        BigDecimal amount = new BigDecimal("1000000.00");
+        BigDecimal rate = new BigDecimal("0.04");
+        jdbcTemplate.update("INSERT INTO loan_application (user_id, account_id, amount, term, interest_rate, "
+                + "status, start_date, end_date, monthly_payment, remaining_principal) "
+                + "VALUES (1, '62258800000001', ?, ?, ?, 'PENDING', DATE '2025-01-01', DATE '2055-01-01', ?, ?)",
+                amount, TERM, rate, calculator.calculateMonthlyPayment(amount, rate, TERM), amount);
+        return jdbcTemplate.queryForObject("SELECT MAX(loan_id) FROM loan_application", Long.class);
+    }
+
+    private long count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Long.class, args);
+    }
+
+    private static long statementsStartingWith(List<String> statements, String prefix) {
+        synchronized (statements) {
+            return statements.stream().filter(sql -> sql.trim().toLowerCase().startsWith(prefix)).count();
+        }
+    }
+
+    // ==== 统计语句的数据源代理：DataSource → Connection → PreparedStatement ====
+    private DataSource counting(DataSource target) {
+        return proxy(DataSource.class, target, (method, result, args) ->
+                result instanceof Connection connection ? counting(connection) : result);
+    }
+
+    private Connection counting(Connection target) {
+        return proxy(Connection.class, target, (method, result, args) ->
+                result instanceof PreparedStatement statement && method.getName().startsWith("prepare")
+                        ? recording(statement, (String) args[0]) : result);
+    }
+
+    private PreparedStatement recording(PreparedStatement target, String sql) {
+        return proxy(PreparedStatement.class, target, (method, result, args) -> {
+            if (method.getName().equals("executeBatch")) {
+                batches.add(sql);
+            } else if (method.getName().startsWith("execute")) {
+                executions.add(sql);
+            }
+            return result;
+        });
+    }
+
+    // 转调目标对象，再按方法与返回值决定是否继续包装
+    private static <T> T proxy(Class<T> type, T target, AfterCall afterCall) {
+        return type.cast(Proxy.newProxyInstance(LoanApprovalBatchInsertTests.class.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    return afterCall.apply(method, result, args);
+                }));
+    }
+
+    @FunctionalInterface
+    private interface AfterCall {
+        Object apply(Method method, Object result, Object[] args) throws Exception;
+    }
+}
@@ -0,0 +1,115 @@
+package com.bank.customer.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import com.bank.customer.component.AccountCache;
+import com.bank.customer.component.HotAccountLedger;
+import com.bank.customer.component.VelocityGuard;
+import com.bank.customer.event.LedgerOutbox;
+import com.bank.customer.exception.BusinessException;
+import com.bank.customer.exception.InsufficientBalanceException;
+import com.bank.customer.repository.AccountRepository;
+import com.bank.customer.repository.OutboxEventRepository;
+import com.bank.customer.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * 取款失败不占用频率限额：频率计入在扣款成功后、记账事务内进行，事务回滚时撤销
+ * 在 H2（MSSQLServer 模式）替身库上直接构造 TransactionService（直接改库路径）。
+ */
+class TransactionVelocityTests {
+    private static final String ACCOUNT_ID = "62258800000001";
+    private static final int MINUTE_COUNT = 2;
+
+    private JdbcTemplate jdbcTemplate;
+    private EntityManagerFactory entityManagerFactory;
+    private TransactionService transactionService;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:transaction_velocity;MODE=MSSQLServer;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        new ResourceDatabasePopulator(new ClassPathResource("db/h2/schema.sql")).execute(dataSource);
+
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan("com.bank.customer.entity");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(Map.of(
+                "hibernate.dialect", "org.hibernate.dialect.H2Dialect",
+                "hibernate.hbm2ddl.auto", "none",
+                "hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName(),
+                "hibernate.implicit_naming_strategy", SpringImplicitNamingStrategy.class.getName()));
+        factory.afterPropertiesSet();
+        entityManagerFactory = factory.getObject();
+
+        JpaRepositoryFactory repositories = new JpaRepositoryFactory(
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory));
+        AccountRepository accountRepository = repositories.getRepository(AccountRepository.class);
+        VelocityGuard velocityGuard = new VelocityGuard(1 << 10,
+                MINUTE_COUNT, new BigDecimal("1000000"),
+                Integer.MAX_VALUE, new BigDecimal("1000000000"),
+                Integer.MAX_VALUE, new BigDecimal("1000000000"));
+        transactionService = new TransactionService(
+                repositories.getRepository(TransactionRepository.class),
+                accountRepository,
+                new LedgerOutbox(repositories.getRepository(OutboxEventRepository.class), jdbcTemplate,
+                        JsonMapper.builder().findAndAddModules().build()),
+                new AccountCache(accountRepository, new SimpleMeterRegistry(), 1000, 30),
+                new HotAccountLedger(jdbcTemplate),
+                Optional.empty(),
+                Optional.empty(),
+                Optional.of(velocityGuard),
+                new JpaTransactionManager(entityManagerFactory));
+
+        jdbcTemplate.update("INSERT INTO account (account_id, user_id, account_type, balance) "
+                + "VALUES (?, 1, 'savings', 100)", ACCOUNT_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        entityManagerFactory.close();
+    }
+
+    @Test
+    void insufficientBalanceWithdrawalDoesNotConsumeLimit() {
+        for (int i = 0; i < MINUTE_COUNT + 1; i++) {
+            assertThrows(InsufficientBalanceException.class,
+                    () -> transactionService.withdraw(ACCOUNT_ID, new BigDecimal("500")));
+        }
+
+        // 失败的取款均已撤销计入，限额内的笔数仍可全部使用
+        for (int i = 0; i < MINUTE_COUNT; i++) {
+            transactionService.withdraw(ACCOUNT_ID, BigDecimal.TEN);
+        }
+        assertThrows(BusinessException.class, () -> transactionService.withdraw(ACCOUNT_ID, BigDecimal.TEN));
+        assertEquals(0, new BigDecimal("80").compareTo(
+                jdbcTemplate.queryForObject("SELECT balance FROM account WHERE account_id = ?",
+                        BigDecimal.class, ACCOUNT_ID)));
+    }
+}
@@ -0,0 +1,95 @@
+-- 测试用的本地替身表结构（H2，MSSQLServer 模式）
+-- 与线上表列一致；不建外键，避免 H2 自动生成的外键索引干扰执行计划判断
+CREATE TABLE [user] (
+    user_id INT PRIMARY KEY IDENTITY(1,1),
+    username NVARCHAR(50) NOT NULL,
+    password_hash NVARCHAR(255) NOT NULL,
+    full_name NVARCHAR(100) NOT NULL,
+    email NVARCHAR(100) NOT NULL,
+    phone NVARCHAR(20) NOT NULL,
+    address NVARCHAR(255),
+    created_at DATETIME NOT NULL DEFAULT GETDATE(),
+    last_login DATETIME,
+    status NVARCHAR(10) NOT NULL DEFAULT 'ACTIVE'
+);
+
+CREATE TABLE account (
+    account_id NVARCHAR(20) PRIMARY KEY,
+    user_id INT NOT NULL,
+    account_type NVARCHAR(10) NOT NULL,
+    balance DECIMAL(15,2) NOT NULL DEFAULT 0.00,
+    status NVARCHAR(10) NOT NULL DEFAULT 'ACTIVE',
+    created_at DATETIME NOT NULL DEFAULT GETDATE(),
+    closed_at DATETIME,
+    hot_slots INT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE account_transaction (
+    transaction_id INT PRIMARY KEY IDENTITY(1,1),
+    from_account_id NVARCHAR(20),
+    to_account_id NVARCHAR(20),
+    amount DECIMAL(15,2) NOT NULL,
+    transaction_type NVARCHAR(10) NOT NULL,
+    transaction_time DATETIME NOT NULL DEFAULT GETDATE(),
+    description NVARCHAR(255)
+);
+
+CREATE TABLE loan_application (
+    loan_id BIGINT PRIMARY KEY IDENTITY(1,1),
+    user_id INT NOT NULL,
+    account_id NVARCHAR(20) NOT NULL,
+    amount DECIMAL(15,2) NOT NULL,
+    term INT NOT NULL,
+    interest_rate DECIMAL(5,2) NOT NULL,
+    status NVARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    monthly_payment DECIMAL(15,2),
+    remaining_principal DECIMAL(15,2),
+    schedule_mode NVARCHAR(10) NOT NULL DEFAULT 'EAGER',
+    next_due_date DATE,
+    paid_count INT NOT NULL DEFAULT 0,
+    pending_count INT NOT NULL DEFAULT 0
+);
+
+CREATE SEQUENCE seq_loan_repayment AS BIGINT START WITH 50 INCREMENT BY 50;
+
+CREATE TABLE loan_repayment (
+    repayment_id BIGINT PRIMARY KEY DEFAULT (NEXT VALUE FOR seq_loan_repayment),
+    loan_id BIGINT NOT NULL,
+    repayment_date DATE NOT NULL,
+    amount DECIMAL(15,2) NOT NULL,
+    principal DECIMAL(15,2) NOT NULL,
+    interest DECIMAL(15,2) NOT NULL,
+    status NVARCHAR(20) NOT NULL
+);
+
+CREATE TABLE account_balance_slot (
+    account_id NVARCHAR(20) NOT NULL,
+    slot_no INT NOT NULL,
+    balance DECIMAL(15,2) NOT NULL DEFAULT 0.00,
+    PRIMARY KEY (account_id, slot_no)
+);
+
+CREATE TABLE account_balance_snapshot (
+    account_id NVARCHAR(20) NOT NULL,
+    snapshot_date DATE NOT NULL,
+    closing_balance DECIMAL(15,2) NOT NULL,
+    created_at DATETIME NOT NULL DEFAULT GETDATE(),
+    PRIMARY KEY (account_id, snapshot_date)
+);
+
+CREATE TABLE interest_accrual_checkpoint (
+    accrual_date DATE PRIMARY KEY,
+    last_account_id NVARCHAR(20) NOT NULL DEFAULT '',
+    completed BIT NOT NULL DEFAULT 0,
+    updated_at DATETIME NOT NULL DEFAULT GETDATE()
+);
+
+CREATE TABLE ledger_outbox (
+    event_id BIGINT PRIMARY KEY IDENTITY(1,1),
+    event_type NVARCHAR(20) NOT NULL,
+    payload NVARCHAR(4000) NOT NULL,
+    created_at DATETIME NOT NULL DEFAULT GETDATE(),
+    published_at DATETIME NULL
+);